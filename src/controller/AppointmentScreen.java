@@ -1,8 +1,9 @@
 package controller;
 
+import database.AsyncDB;
 import database.JDBC;
+import database.ReferenceData;
 import exceptions.SchedulingException;
-import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXMLLoader;
@@ -14,7 +15,9 @@ import javafx.scene.control.ComboBox;
 import javafx.scene.control.DatePicker;
 import javafx.scene.control.TextField;
 import javafx.stage.Stage;
+import javafx.stage.Window;
 import model.*;
+import util.ConflictIndex;
 import util.Dialogs;
 import util.Time;
 
@@ -47,7 +50,8 @@ public class AppointmentScreen implements Initializable {
     private User                        user;
     private Customer                    customer;
     private Appointment                 appointment;
-    private ObservableList<Appointment> customerAppts;
+    private ConflictIndex               conflicts;
+    private MainScreen                  mainScreen;
     private ObservableList<Contact>     contacts;
 
     /**
@@ -60,7 +64,10 @@ public class AppointmentScreen implements Initializable {
      */
     @Override
     public void initialize(URL url, ResourceBundle resourceBundle) {
-        contacts = FXCollections.observableArrayList(JDBC.loadContacts());
+        AsyncDB.supply(ReferenceData::getContacts).thenAcceptAsync(loaded -> {
+            contacts = loaded;
+            populateContacts();
+        }, AsyncDB.fxThread);
     }
 
     /**
@@ -82,13 +89,24 @@ public class AppointmentScreen implements Initializable {
     }
 
     /**
-     * Sets the list of existing appointments for the customer. This is used in
-     * checking for scheduling conflicts.
+     * Sets the Main Screen that opened this form.  It is shown again, and given the saved
+     * appointment, when this form closes.
      *
-     * @param appts The customer's existing appointments
+     * @param mainScreen The Main Screen to return to
      */
-    public void setCustomerAppointments(ObservableList<Appointment> appts) {
-        this.customerAppts = appts;
+    public void setMainScreen(MainScreen mainScreen) {
+        this.mainScreen = mainScreen;
+    }
+
+    /**
+     * Sets the index of existing appointments. This is used in
+     * checking for scheduling conflicts.  If no index is set, the
+     * check is made by the database instead.
+     *
+     * @param conflicts The index of existing appointments
+     */
+    public void setConflictIndex(ConflictIndex conflicts) {
+        this.conflicts = conflicts;
     }
 
     /**
@@ -103,13 +121,10 @@ public class AppointmentScreen implements Initializable {
     }
 
     /**
-     *
-     * A lambda function is used to filter <i>contacts</i> List to the appointment's
-     * customer, and pre-select that contact in <i>ContactCombo</i>.
-     * <br>
-     * The .filtered function takes a <i>Predicate</i>, which is
-     * created and passed anonymously using a lambda.  Each item in the
-     * list is compared using the predicate, and added to a <i>FilteredList</i>.
+     * Populates all fields on the form with the Appointment's data.
+     * <br><br>
+     * The appointment's contact is looked up by ID in {@link ReferenceData}, and
+     * pre-selected in <i>ContactCombo</i>.
      */
     protected void populateFields() {
         if (appointment != null) {
@@ -131,11 +146,18 @@ public class AppointmentScreen implements Initializable {
             ApptUserId.setText(Integer.toString(user.getUserId()));
         }
 
+        populateContacts();
+    }
+
+    /**
+     * Fills <i>ContactCombo</i> once the contacts have loaded, pre-selecting the appointment's contact.
+     */
+    private void populateContacts() {
         if (contacts != null) {
             ContactCombo.setItems(this.contacts);
 
             if (appointment != null) {
-                Contact C = contacts.filtered(contact -> contact.getName().equals(appointment.getContact())).get(0);
+                Contact C = ReferenceData.getContact(appointment.getContactId());
                 ContactCombo.getSelectionModel().select(C);
             }
         }
@@ -143,8 +165,11 @@ public class AppointmentScreen implements Initializable {
 
     private Appointment createAppointmentObject() {
         Appointment appt = new Appointment();
-        if (this.appointment != null)
+        if (this.appointment != null) {
             appt.setApptId(this.appointment.getApptId());
+            appt.setCreateDate(this.appointment.getCreateDate());
+            appt.setCreatedBy(this.appointment.getCreatedBy());
+        }
         appt.setTitle(ApptTitle.getText());
         appt.setDesc(ApptDesc.getText());
         appt.setLocation(ApptLocation.getText());
@@ -253,31 +278,62 @@ public class AppointmentScreen implements Initializable {
      */
     public void onSubmitAction(ActionEvent actionEvent) {
         final Appointment appt = createAppointmentObject();
+        final Window window = ((Node) actionEvent.getSource()).getScene().getWindow();
 
-        try {
-            Time.checkForSchedulingErrors(appt, this.customerAppts);
-        }
-        catch (SchedulingException se) {
-            Dialogs.alertUser(Alert.AlertType.ERROR, "Scheduling Error", se.getReason(), se.getMessage());
+        if (this.conflicts != null) {
+            try {
+                Time.checkForSchedulingErrors(appt, this.conflicts);
+            }
+            catch (SchedulingException se) {
+                Dialogs.alertUser(Alert.AlertType.ERROR, "Scheduling Error", se.getReason(), se.getMessage());
+                return;
+            }
+            confirmAndBook(appt, window);
             return;
         }
 
+        AsyncDB.supply(() -> JDBC.findSchedulingConflicts(appt)).whenCompleteAsync((found, error) -> {
+            if (error != null) {
+                Dialogs.alertUser(Alert.AlertType.ERROR, "SQL Error", "SQL Error", AsyncDB.causeOf(error).getMessage());
+                return;
+            }
+            try {
+                Time.checkForSchedulingErrors(appt, found);
+            }
+            catch (SchedulingException se) {
+                Dialogs.alertUser(Alert.AlertType.ERROR, "Scheduling Error", se.getReason(), se.getMessage());
+                return;
+            }
+            confirmAndBook(appt, window);
+        }, AsyncDB.fxThread);
+    }
+
+    /**
+     * Prompts the user for confirmation, then books the appointment in the background.
+     * The form is closed once the booking succeeds.
+     */
+    private void confirmAndBook(Appointment appt, Window window) {
         final boolean confirm = Dialogs.promptUser("Submit appointment?",
                 "Are you sure you want to submit the appointment?");
-        if (confirm) {
-            try {
-                if (this.appointment == null)
-                    JDBC.insertAppointment(this.user, appt);
-                else
-                    JDBC.updateAppointment(this.user, appt);
+        if (!confirm)
+            return;
+
+        AsyncDB.run(() -> JDBC.bookAppointment(this.user, appt)).whenCompleteAsync((done, error) -> {
+            final Throwable cause = error == null ? null : AsyncDB.causeOf(error);
+            if (cause instanceof SchedulingException) {
+                final SchedulingException se = (SchedulingException) cause;
+                Dialogs.alertUser(Alert.AlertType.ERROR, "Scheduling Error", se.getReason(), se.getMessage());
+                return;
             }
-            catch (SQLException sqle) {
-                Dialogs.alertUser(Alert.AlertType.ERROR, "SQL Error", "SQL Error", sqle.getMessage());
+            if (cause != null) {
+                Dialogs.alertUser(Alert.AlertType.ERROR, "SQL Error", "SQL Error", cause.getMessage());
                 return;
             }
-            ((Node) actionEvent.getSource()).getScene().getWindow().hide();
+            window.hide();
+            if (this.mainScreen != null)
+                this.mainScreen.appointmentSaved(appt);
             showMainWindow();
-        }
+        }, AsyncDB.fxThread);
     }
 
     /**
@@ -295,6 +351,11 @@ public class AppointmentScreen implements Initializable {
     }
 
     private void showMainWindow() {
+        if (this.mainScreen != null) {
+            this.mainScreen.show();
+            return;
+        }
+
         try {
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/view/MainScreen.fxml"));
 
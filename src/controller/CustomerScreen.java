@@ -1,7 +1,10 @@
 package controller;
 
+import database.AsyncDB;
 import database.JDBC;
+import database.ReferenceData;
 import javafx.collections.ObservableList;
+import javafx.collections.transformation.FilteredList;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
@@ -12,6 +15,7 @@ import javafx.scene.control.ComboBox;
 import javafx.scene.control.Label;
 import javafx.scene.control.TextField;
 import javafx.stage.Stage;
+import javafx.stage.Window;
 import javafx.util.StringConverter;
 import model.Country;
 import model.Customer;
@@ -44,6 +48,8 @@ public class CustomerScreen implements Initializable {
     private User                     user;
     private ObservableList<Country>  countries;
     private ObservableList<Division> divisions;
+    private FilteredList<Division>   countryDivisions;
+    private MainScreen               mainScreen;
 
     /**
      * Initializes the Customer Screen.  Applies an action listener to
@@ -62,8 +68,10 @@ public class CustomerScreen implements Initializable {
      */
     @Override
     public void initialize(URL url, ResourceBundle resourceBundle) {
-        CountryCombo.valueProperty().addListener(
-                (ov, prevSelection, newSelection) -> DivisionCombo.setItems(Filtering.filterDivisionsByCountry(divisions, (Country) newSelection)));
+        CountryCombo.valueProperty().addListener((ov, prevSelection, newSelection) -> {
+            if (countryDivisions != null)
+                countryDivisions.setPredicate(Filtering.divisionsInCountry((Country) newSelection));
+        });
     }
 
     /**
@@ -86,7 +94,18 @@ public class CustomerScreen implements Initializable {
     }
 
     /**
-     * Sets the available countries and top-level divisions.
+     * Sets the Main Screen that opened this form.  It is shown again, and given the saved
+     * customer, when this form closes.
+     *
+     * @param mainScreen The Main Screen to return to
+     */
+    public void setMainScreen(MainScreen mainScreen) {
+        this.mainScreen = mainScreen;
+    }
+
+    /**
+     * Sets the available countries and top-level divisions.  <i>DivisionCombo</i> shows a
+     * live view of the divisions, filtered by the selected country.
      *
      * @param C The list of Countries
      * @param D The list of Top-Level Divisions
@@ -94,17 +113,14 @@ public class CustomerScreen implements Initializable {
     public void passCountriesAndDivisions(ObservableList<Country> C, ObservableList<Division> D) {
         this.countries = C;
         this.divisions = D;
+        this.countryDivisions = new FilteredList<>(D, Filtering.divisionsInCountry(null));
     }
 
     /**
      * Populates all fields on the form with the Customer's data.
      * <br><br>
-     * A lambda function is used to filter <i>countries</i> List to the customer's
-     * country, and pre-select that country in <i>CountryCombo</i>.
-     * <br>
-     * The .filtered function takes a <i>Predicate</i>, which is
-     * created and passed anonymously using a lambda.  Each item in the
-     * list is compared using the predicate, and added to a <i>FilteredList</i>.
+     * The customer's country is looked up by ID in {@link ReferenceData}, and
+     * pre-selected in <i>CountryCombo</i>.
      *
      */
     protected void populateFields() {
@@ -131,22 +147,20 @@ public class CustomerScreen implements Initializable {
 
                 @Override
                 public Country fromString(String s) {
-                    for (final Country C : countries)
-                        if (C.getCountry().equalsIgnoreCase(s))
-                            return C;
-                    return null;
+                    return ReferenceData.findCountry(s);
                 }
             });
 
             if (customer != null) {
-                Country C = countries.filtered(country -> country.getCountryId() == customer.getDivision().getCountryId()).get(0);
+                Country C = ReferenceData.getCountry(customer.getDivision().getCountryId());
                 CountryCombo.getSelectionModel().select(C);
             }
         }
 
         if (divisions != null) {
             Country C = (Country) CountryCombo.getSelectionModel().getSelectedItem();
-            DivisionCombo.setItems(Filtering.filterDivisionsByCountry(this.divisions, C));
+            this.countryDivisions.setPredicate(Filtering.divisionsInCountry(C));
+            DivisionCombo.setItems(this.countryDivisions);
             DivisionCombo.setConverter(new StringConverter<Division>() {
 
                 @Override
@@ -158,10 +172,7 @@ public class CustomerScreen implements Initializable {
 
                 @Override
                 public Division fromString(String s) {
-                    for (final Division D : divisions)
-                        if (D.getDivision().equalsIgnoreCase(s))
-                            return D;
-                    return null;
+                    return ReferenceData.findDivision(s);
                 }
             });
             if (customer != null)
@@ -234,19 +245,23 @@ public class CustomerScreen implements Initializable {
         this.customer.setPostalCode(postal);
         this.customer.setPhone(phone);
         this.customer.setDivision(division);
-        try {
+        final Customer toSave = this.customer;
+        final Window window = ((Node) actionEvent.getSource()).getScene().getWindow();
+        AsyncDB.run(() -> {
             if (newCustomer)
-                JDBC.insertCustomer(this.user, this.customer);
+                JDBC.insertCustomer(this.user, toSave);
             else
-                JDBC.updateCustomer(this.user, this.customer);
-        }
-        catch (SQLException sqle) {
-            Dialogs.alertUser(Alert.AlertType.ERROR, "SQL Error", "SQL Error", sqle.getMessage());
-            return;
-        }
-
-        ((Node) actionEvent.getSource()).getScene().getWindow().hide();
-        showMainWindow();
+                JDBC.updateCustomer(this.user, toSave);
+        }).whenCompleteAsync((done, error) -> {
+            if (error != null) {
+                Dialogs.alertUser(Alert.AlertType.ERROR, "SQL Error", "SQL Error", AsyncDB.causeOf(error).getMessage());
+                return;
+            }
+            window.hide();
+            if (this.mainScreen != null)
+                this.mainScreen.customerSaved(toSave);
+            showMainWindow();
+        }, AsyncDB.fxThread);
     }
 
     /**
@@ -264,6 +279,11 @@ public class CustomerScreen implements Initializable {
     }
 
     private void showMainWindow() {
+        if (this.mainScreen != null) {
+            this.mainScreen.show();
+            return;
+        }
+
         try {
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/view/MainScreen.fxml"));
 
@@ -1,5 +1,6 @@
 package controller;
 
+import database.AsyncDB;
 import database.JDBC;
 import exceptions.LoginException;
 import javafx.event.ActionEvent;
@@ -12,12 +13,14 @@ import javafx.scene.control.Button;
 import javafx.scene.control.Label;
 import javafx.scene.control.TextField;
 import javafx.stage.Stage;
+import javafx.stage.Window;
 import model.User;
 import util.Dialogs;
 import util.Logging;
 
 import java.io.IOException;
 import java.net.URL;
+import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.ZoneId;
@@ -95,7 +98,7 @@ public class LoginScreen implements Initializable {
         }
     }
 
-    private void showMainWindow(User user) throws IOException {
+    private void showMainWindow(User user, long loggedIn) throws IOException {
         FXMLLoader loader = new FXMLLoader(getClass().getResource("/view/MainScreen.fxml"));
 
         Stage stage = new Stage();
@@ -105,6 +108,7 @@ public class LoginScreen implements Initializable {
         stage.setTitle("Appointment Scheduler");
 
         MainScreen controller = loader.getController();
+        controller.timeStartupFrom(loggedIn);
         controller.initUser(user);
 
         stage.show();
@@ -114,7 +118,7 @@ public class LoginScreen implements Initializable {
     /**
      * Checks the database for the username/password combination.  If found,
      * creates a new User object, passes it to the Main Screen and closes
-     * the Login Screen.
+     * the Login Screen.  The database is checked in the background.
      *
      * @param actionEvent
      */
@@ -129,43 +133,57 @@ public class LoginScreen implements Initializable {
             return;
         }
 
-        User user = null;
-        try(ResultSet R = JDBC.queryConnection("SELECT User_ID, User_Name, Password "
+        final Window window = ((Node) actionEvent.getSource()).getScene().getWindow();
+        Login.setDisable(true);
+        AsyncDB.supply(() -> findUser(uName, pass)).whenCompleteAsync((user, error) -> {
+            Login.setDisable(false);
+            final Throwable cause = error == null ? null : AsyncDB.causeOf(error);
+            if (cause instanceof LoginException) {
+                Information.setText(cause.getMessage());
+                Logging.logUserLoginAttempt(uName, false);
+                return;
+            }
+            if (cause instanceof NullPointerException) {
+                Dialogs.alertUser(Alert.AlertType.ERROR, "Error", "No Database Connection", cause.getMessage());
+                System.exit(1);
+            }
+            if (cause != null) {
+                Dialogs.alertUser(Alert.AlertType.ERROR, "SQL Error", "SQL Error", cause.getMessage());
+                return;
+            }
+
+            final long loggedIn = System.nanoTime();
+            Logging.logUserLoginAttempt(uName, true);
+            try {
+                showMainWindow(user, loggedIn);
+                window.hide();
+            }
+            catch (IOException ioe) {
+                Dialogs.alertUser(Alert.AlertType.ERROR, "Error loading view", "Failed to Load View", ioe.getMessage());
+                System.exit(2);
+            }
+        }, AsyncDB.fxThread);
+    }
+
+    /**
+     * Looks up the user with a username/password combination.
+     *
+     * @throws LoginException if no user matches
+     */
+    private User findUser(String uName, String pass) throws SQLException, LoginException {
+        try(Connection conn = JDBC.getConnection();
+            ResultSet R = JDBC.queryConnection(conn, "SELECT User_ID, User_Name, Password "
                 + "FROM users WHERE User_Name='" + uName + "' AND Password='" + pass + "';")) {
             if (R.next()) {
                 int    userId        = R.getInt("User_ID");
                 String username      = R.getString("User_Name");
                 String password      = R.getString("Password");
 
-                user = new User(userId, username, password);
+                return new User(userId, username, password);
             }
             else {
                 throw new LoginException(rb.getString("invalid"));
             }
         }
-        catch (SQLException sqle) {
-            Dialogs.alertUser(Alert.AlertType.ERROR, "SQL Error", "SQL Error", sqle.getMessage());
-        }
-        catch (LoginException le) {
-            Information.setText(le.getMessage());
-            Logging.logUserLoginAttempt(uName, false);
-        }
-        catch (NullPointerException npe) {
-            Dialogs.alertUser(Alert.AlertType.ERROR, "Error", "No Database Connection", npe.getMessage());
-            System.exit(1);
-        }
-        finally {
-            if (user != null) {
-                Logging.logUserLoginAttempt(uName, true);
-                try {
-                    showMainWindow(user);
-                    ((Node) actionEvent.getSource()).getScene().getWindow().hide();
-                }
-                catch (IOException ioe) {
-                    Dialogs.alertUser(Alert.AlertType.ERROR, "Error loading view", "Failed to Load View", ioe.getMessage());
-                    System.exit(2);
-                }
-            }
-        }
     }
 }
@@ -1,8 +1,20 @@
 package controller;
 
+import database.AppointmentDetails;
+import database.AsyncDB;
+import database.DeltaSync;
 import database.JDBC;
+import database.PagedList;
+import database.ReferenceData;
+import database.StartupPipeline;
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.beans.value.ChangeListener;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import javafx.collections.transformation.FilteredList;
+import javafx.collections.transformation.SortedList;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
@@ -14,20 +26,33 @@ import javafx.scene.layout.StackPane;
 import javafx.scene.text.Font;
 import javafx.stage.Stage;
 import javafx.stage.StageStyle;
+import javafx.stage.Window;
+import javafx.util.Callback;
+import javafx.util.Duration;
 import javafx.util.StringConverter;
 import model.*;
 import util.Dialogs;
+import util.AppointmentIndex;
+import util.CompressedBitmap;
 import util.Filtering;
+import util.IndexedList;
 import util.Time;
 
 import java.io.IOException;
 import java.net.URL;
 import java.sql.SQLException;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.TextStyle;
+import java.util.List;
 import java.util.Locale;
 import java.util.ResourceBundle;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
 
 /**
  * The controller class for the MainScreen view.
@@ -35,23 +60,59 @@ import java.util.ResourceBundle;
  * @author Jonathan Hawranko
  */
 public class MainScreen implements Initializable {
+    private static final int PAGE_SIZE = 100;
+    private static final int MAX_PAGES = 20;
+    private static final Duration SYNC_INTERVAL = Duration.minutes(1);
+
     private User       user;
     private ObservableList<Appointment> appts;
     private ObservableList<Customer>    customers;
     private ObservableList<Country>     countries;
     private ObservableList<Division>    divisions;
+    private FilteredList<Division>      filteredDivisions;
+    private IndexedList<Customer>       filteredCustomers;
+    private SortedList<Customer>        sortedCustomers;
+    private FilteredList<Division>      filterDivisions;
+    private ObservableList<Contact>     filterContacts;
+    private ObservableList<String>      filterTypes;
+    private ToggleGroup                 apptRadios;
+    private boolean                     clearingFilters;
+    private PagedList<Appointment, Integer> pagedAppts;
+    private PagedList<Customer, Integer>    pagedCustomers;
+    private StartupPipeline startup;
+    private boolean synced;
+    private CompletableFuture<Void> syncing; // the sync in progress, or the last one
+    private boolean                 syncFailing;
+    private CompletableFuture<List<Appointment>> pendingAppts;
+    private CompletableFuture<String>            pendingReport;
 
     public Label       UserLabel;
     public Button      LoginButton;
+    public ProgressIndicator Progress;
     
     // Appointments Table
     public RadioButton Weekly;
     public RadioButton Monthly;
     public RadioButton AllAppts;
-    public TableView   AppTable;
+    public RadioButton DateRange;
+    public DatePicker  RangeStart;
+    public DatePicker  RangeEnd;
+
+    // Appointment Filters
+    public ComboBox<Country>  FilterCountry;
+    public ComboBox<Division> FilterDivision;
+    public ComboBox<Contact>  FilterContact;
+    public TextField   FilterUser;
+    public ComboBox<String>   FilterType;
+    public CheckBox    ExcludeType;
+    public DatePicker  FilterFrom;
+    public DatePicker  FilterTo;
+    public CheckBox    MatchAny;
+    public Label       FilterResult;
+    public TableView<Appointment> AppTable;
     public TableColumn ID;
     public TableColumn Title;
-    public TableColumn Desc;
+    public TableColumn<Appointment, String> Desc;
     public TableColumn Location;
     public TableColumn Contact;
     public TableColumn Type;
@@ -63,7 +124,7 @@ public class MainScreen implements Initializable {
     // Customers Table
     public ComboBox CountryCombo;
     public ComboBox DivisionCombo;
-    public TableView CustomerTable;
+    public TableView<Customer> CustomerTable;
     public TableColumn CustID;
     public TableColumn CustName;
     public TableColumn CustAddress;
@@ -82,7 +143,15 @@ public class MainScreen implements Initializable {
 
     /**
      * Initializes the Main Screen.
-     * Loads all countries, divisions, customers, appointments, and sets up the Combo Boxes and Tables.
+     * Loads all countries, divisions, and contacts, and sets up the Combo Boxes and Tables.  The
+     * unfiltered Customer and Appointment Tables read their rows a page at a time as they are
+     * scrolled; the full lists are only synced once a filter needs them.  All database work runs
+     * in the background through {@link AsyncDB}, and <i>Progress</i> shows while any is pending.
+     * <br><br>
+     *
+     * The startup loads run in parallel through a {@link StartupPipeline}, each on its own pooled
+     * connection.  Each Table counts its rows and reads its first page at the same time, and shows
+     * them as soon as both arrive; only the Customers' first page waits, for the Divisions.
      * <br><br>
      *
      * A lambda function is used to add a <i>ChangeListener</i> to <b>ToggleGroup</b> <i>apptRadios</i>,
@@ -110,43 +179,98 @@ public class MainScreen implements Initializable {
      */
     @Override
     public void initialize(URL url, ResourceBundle resourceBundle) {
-        try {
-            this.countries = FXCollections.observableArrayList(JDBC.loadCountries());
-            this.divisions = FXCollections.observableArrayList(JDBC.loadDivisions());
-            this.customers = FXCollections.observableArrayList(JDBC.loadCustomers(this.divisions));
-            this.appts = FXCollections.observableArrayList(JDBC.loadAppointments());
-        }
-        catch (NullPointerException npe) {
-            Dialogs.alertUser(Alert.AlertType.ERROR, "Error", "No Database Connection", npe.getMessage());
-            System.exit(1);
-        }
+        this.countries = FXCollections.observableArrayList();
+        this.divisions = FXCollections.observableArrayList();
+        this.customers = DeltaSync.getCustomers();
+        this.appts = DeltaSync.getAppointments();
+        this.filteredDivisions = new FilteredList<>(this.divisions);
+        this.filteredCustomers = new IndexedList<>(this.customers);
+        this.sortedCustomers = new SortedList<>(this.filteredCustomers.getView());
+        this.filterDivisions = new FilteredList<>(this.divisions);
+        this.filterContacts = FXCollections.observableArrayList();
+        this.filterTypes = FXCollections.observableArrayList();
+        this.pagedAppts = PagedList.appointments(PAGE_SIZE, MAX_PAGES);
+        this.pagedCustomers = PagedList.customers(PAGE_SIZE, MAX_PAGES);
+        this.startup = new StartupPipeline();
+        final CompletableFuture<ObservableList<Division>> divisionsLoaded = startup.stage("divisions", ReferenceData::getDivisions);
+        divisionsLoaded.thenAcceptAsync(this.divisions::setAll, AsyncDB.fxThread);
+        startup.stage("countries", ReferenceData::getCountries).thenAcceptAsync(this.countries::setAll, AsyncDB.fxThread);
+        startup.stage("contacts", ReferenceData::getContacts).thenAcceptAsync(this.filterContacts::setAll, AsyncDB.fxThread);
+        // Customers are given their Division from the reference data, so their first page waits for the Divisions
+        final CompletableFuture<Void> customersShown = startup.track("customers", this.pagedCustomers.load(divisionsLoaded));
+        final CompletableFuture<Void> apptsShown = startup.track("appointments",
+                this.pagedAppts.load(CompletableFuture.completedFuture(null)));
+        startup.interactiveWhen(CompletableFuture.allOf(customersShown, apptsShown), AppTable);
+
+        Progress.visibleProperty().bind(AsyncDB.pendingProperty().greaterThan(0));
+
+        final Timeline syncTimer = new Timeline(new KeyFrame(SYNC_INTERVAL, event -> {
+            if (this.synced)
+                sync();
+        }));
+        syncTimer.setCycleCount(Animation.INDEFINITE);
+        syncTimer.play();
 
-        final ToggleGroup apptRadios = new ToggleGroup();
+        this.apptRadios = new ToggleGroup();
         Weekly.setToggleGroup(apptRadios);
         Monthly.setToggleGroup(apptRadios);
         AllAppts.setToggleGroup(apptRadios);
+        DateRange.setToggleGroup(apptRadios);
         apptRadios.selectedToggleProperty().addListener((ov, t, newToggle) -> {
-            if (newToggle == Weekly)
-                AppTable.setItems(Filtering.filterAppointmentsThisWeek(this.appts));
-            else if (newToggle == Monthly)
-                AppTable.setItems(Filtering.filterAppointmentsThisMonth(this.appts));
-            else
-                AppTable.setItems(this.appts);
-
+            // no toggle is selected while the filter panel's results are shown
+            if (newToggle != null)
+                showSelectedAppointments(newToggle);
         });
+        final ChangeListener<LocalDate> onRangeChange = (ov, t, newDate) -> {
+            if (DateRange.isSelected())
+                showSelectedAppointments(DateRange);
+        };
+        RangeStart.valueProperty().addListener(onRangeChange);
+        RangeEnd.valueProperty().addListener(onRangeChange);
 
         CountryCombo.valueProperty().addListener((ov, t, newSelection) -> {
             final Country C = (Country) newSelection;
-            DivisionCombo.setItems(Filtering.filterDivisionsByCountry(this.divisions, C));
-            CustomerTable.setItems(Filtering.filterCustomersByCountryId(this.customers, C));
+            this.filteredDivisions.setPredicate(C == null ? null : Filtering.divisionsInCountry(C));
+
+            // a division from another country no longer applies
+            final Division D = (Division) DivisionCombo.getValue();
+            if (D != null && (C == null || D.getCountryId() != C.getCountryId()))
+                DivisionCombo.getSelectionModel().clearSelection(); // shown by DivisionCombo's listener
+            else
+                showFilteredCustomers();
         });
 
-        DivisionCombo.valueProperty().addListener(
-                (ov, t, newSelection) -> CustomerTable.setItems(Filtering.filterCustomersByDivision(this.customers, (Division) newSelection)));
+        DivisionCombo.valueProperty().addListener((ov, t, newSelection) -> showFilteredCustomers());
+
+        FilterCountry.valueProperty().addListener((ov, t, newSelection) -> {
+            final Country C = newSelection;
+            this.filterDivisions.setPredicate(C == null ? null : Filtering.divisionsInCountry(C));
+            final Division D = FilterDivision.getValue();
+            if (D != null && (C == null || D.getCountryId() != C.getCountryId()))
+                FilterDivision.setValue(null);
+            applyAppointmentFilters();
+        });
+        FilterType.setOnShowing(event -> whenSynced(() -> {
+            final List<String> types = DeltaSync.getAppointmentIndex().getTypes();
+            if (!types.equals(this.filterTypes))
+                this.filterTypes.setAll(types);
+        }));
+        final ChangeListener<Object> onFilterChange = (ov, t, newValue) -> applyAppointmentFilters();
+        FilterDivision.valueProperty().addListener(onFilterChange);
+        FilterContact.valueProperty().addListener(onFilterChange);
+        FilterUser.textProperty().addListener(onFilterChange);
+        FilterType.valueProperty().addListener(onFilterChange);
+        ExcludeType.selectedProperty().addListener(onFilterChange);
+        FilterFrom.valueProperty().addListener(onFilterChange);
+        FilterTo.valueProperty().addListener(onFilterChange);
+        MatchAny.selectedProperty().addListener(onFilterChange);
+        this.sortedCustomers.comparatorProperty().bind(CustomerTable.comparatorProperty());
+        sortUnlessPaged(AppTable);
+        sortUnlessPaged(CustomerTable);
 
         ID.setCellValueFactory(new PropertyValueFactory<Appointment,Integer>("apptId"));
         Title.setCellValueFactory(new PropertyValueFactory<Appointment,String>("title"));
-        Desc.setCellValueFactory(new PropertyValueFactory<Appointment,String>("desc"));
+        Desc.setCellValueFactory(cell -> AppointmentDetails.description(cell.getValue()));
         Location.setCellValueFactory(new PropertyValueFactory<Appointment,String>("location"));
         Contact.setCellValueFactory(new PropertyValueFactory<Appointment,String>("contact"));
         Type.setCellValueFactory(new PropertyValueFactory<Appointment,String>("type"));
@@ -217,6 +341,310 @@ public class MainScreen implements Initializable {
         ReportUsers.setToggleGroup(reportRadios);
     }
 
+    /**
+     * Shows the Customers of the selected Division, or else of the selected Country, in
+     * <i>CustomerTable</i>.  The table shows a live, sorted view of the synced Customers.  Changing
+     * the filter fills the view from the synced Customers' Division and Country index, visiting
+     * only the matching Customers, and later changes to the Customers show without refiltering.
+     * With no filter selected, the paged Customer list is shown.
+     */
+    private void showFilteredCustomers() {
+        final Country C = (Country) CountryCombo.getValue();
+        final Division D = (Division) DivisionCombo.getValue();
+        final Predicate<Customer> filter = Filtering.customersIn(C, D);
+        if (filter == null) {
+            CustomerTable.setItems(this.pagedCustomers);
+            return;
+        }
+
+        whenSynced(() -> {
+            this.filteredCustomers.setFilter(filter, DeltaSync.getCustomerIndex().find(C, D));
+            if (CustomerTable.getItems() != this.sortedCustomers)
+                CustomerTable.setItems(this.sortedCustomers);
+        });
+    }
+
+    /**
+     * Runs an action once the full Customer and Appointment lists are loaded.  The lists are
+     * synced in the background the first time they are needed by this screen; after that the
+     * action runs straight away against them, and they are kept up to date by {@link #sync()}.
+     *
+     * @param action The action to run on the JavaFX Application Thread; not run if the sync fails
+     */
+    private void whenSynced(Runnable action) {
+        if (this.synced)
+            action.run();
+        else
+            sync().thenRunAsync(action, AsyncDB.fxThread);
+    }
+
+    /**
+     * Brings the Customer and Appointment lists up to date with a delta sync, unless one is
+     * already in progress.  Runs when this screen is shown again, such as after a save, and
+     * every {@link #SYNC_INTERVAL} once the lists are loaded.  A failure is reported once, rather
+     * than again on every later sync until one succeeds.
+     *
+     * @return a future completed on the JavaFX Application Thread once the sync is done
+     */
+    private CompletableFuture<Void> sync() {
+        if (this.syncing == null || this.syncing.isDone())
+            this.syncing = AsyncDB.run(DeltaSync::sync).whenCompleteAsync((done, error) -> {
+                if (error != null) {
+                    if (!this.syncFailing || !this.synced)
+                        Dialogs.alertUser(Alert.AlertType.ERROR, "SQL Error", "SQL Error", AsyncDB.causeOf(error).getMessage());
+                    this.syncFailing = true;
+                    return;
+                }
+                this.synced = true;
+                this.syncFailing = false;
+            }, AsyncDB.fxThread);
+        return this.syncing;
+    }
+
+    /**
+     * Times this screen's startup from a point before it was created, such as the login.
+     *
+     * @param loggedIn The <i>System.nanoTime()</i> at which the login succeeded
+     */
+    public void timeStartupFrom(long loggedIn) {
+        this.startup.setOrigin(loggedIn);
+    }
+
+    /**
+     * Returns when each startup load started and finished, and the time to the first interactive frame.
+     *
+     * @return a summary of the startup timings
+     */
+    public String getStartupTimings() {
+        return this.startup.getTimings();
+    }
+
+    /**
+     * Shows this screen again after a form opened from it closes.  Once this screen has synced,
+     * the lists are brought up to date, and an appointment view read from them is shown again.
+     */
+    public void show() {
+        ((Stage) UserLabel.getScene().getWindow()).show();
+        if (!this.synced)
+            return;
+
+        sync().thenRunAsync(() -> {
+            final Toggle toggle = this.apptRadios.getSelectedToggle();
+            if (toggle == null)
+                applyAppointmentFilters();
+            else if (toggle != AllAppts)
+                showSelectedAppointments(toggle);
+        }, AsyncDB.fxThread);
+    }
+
+    /**
+     * Puts a Customer saved by the Customer Screen into the synced list and this screen's
+     * table, instead of reloading them.  The Customer already holds its generated ID.
+     *
+     * @param customer The saved Customer
+     */
+    public void customerSaved(Customer customer) {
+        DeltaSync.putCustomer(customer);
+        if (CustomerTable.getItems() == this.pagedCustomers)
+            this.pagedCustomers.refresh();
+    }
+
+    /**
+     * Puts an Appointment booked by the Appointment Screen into the synced list and this
+     * screen's table, instead of reloading them.  The Appointment already holds its generated ID.
+     *
+     * @param appt The saved Appointment
+     */
+    public void appointmentSaved(Appointment appt) {
+        DeltaSync.putAppointment(appt);
+        if (AppTable.getItems() == this.pagedAppts)
+            this.pagedAppts.refresh();
+        else
+            replaceById(AppTable.getItems(), appt, Appointment::getApptId);
+    }
+
+    /**
+     * Keeps a table's columns from being sorted while it shows a {@link PagedList}.  Sorting the
+     * list would read every row, fetching every page, only to fail since the list is read-only.
+     */
+    private static <S> void sortUnlessPaged(TableView<S> table) {
+        final Callback<TableView<S>, Boolean> sortPolicy = table.getSortPolicy();
+        table.setSortPolicy(T -> T.getItems() instanceof PagedList || sortPolicy.call(T));
+        table.itemsProperty().addListener((ov, t, items) -> {
+            final boolean paged = items instanceof PagedList;
+            if (paged)
+                table.getSortOrder().clear();
+            for (final TableColumn<S, ?> column : table.getColumns())
+                column.setSortable(!paged);
+        });
+    }
+
+    /**
+     * Replaces the row shown with the same ID as a saved one.  Rows not shown are left out,
+     * since the table may be filtered.
+     */
+    private static <T> void replaceById(ObservableList<T> items, T saved, ToIntFunction<T> idOf) {
+        for (int i = 0; i < items.size(); i++) {
+            if (idOf.applyAsInt(items.get(i)) == idOf.applyAsInt(saved)) {
+                items.set(i, saved);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Shows the appointments matching the filter panel in <i>AppTable</i>.
+     * <br><br>
+     * Each criterion selected is looked up in the synced appointments' {@link AppointmentIndex} as
+     * a bitmap of appointment IDs: Country and Division through the Customers found with the
+     * {@link util.CustomerIndex}, and Contact, User, Type, and the start date range directly.  The
+     * bitmaps are intersected, or with <i>MatchAny</i> united, and with <i>ExcludeType</i> the
+     * Type's appointments are removed from the result instead.  Only the appointments matched are
+     * visited, and the time taken is shown in <i>FilterResult</i>.
+     */
+    private void applyAppointmentFilters() {
+        if (this.clearingFilters)
+            return;
+
+        final Country C = FilterCountry.getValue();
+        final Division D = FilterDivision.getValue();
+        final Contact contact = FilterContact.getValue();
+        final String type = FilterType.getValue();
+        final LocalDate from = FilterFrom.getValue();
+        final LocalDate to = FilterTo.getValue();
+        Integer userId = null;
+        try {
+            if (!FilterUser.getText().isBlank())
+                userId = Integer.parseInt(FilterUser.getText().trim());
+        }
+        catch (NumberFormatException nfe) {
+            FilterResult.setText("User ID must be a number.");
+            return;
+        }
+
+        if (C == null && D == null && contact == null && userId == null && type == null && from == null && to == null) {
+            FilterResult.setText("");
+            // the filter results were shown in place of a view; show the view again
+            if (this.apptRadios.getSelectedToggle() == null)
+                AllAppts.setSelected(true);
+            return;
+        }
+
+        final Integer user = userId;
+        whenSynced(() -> {
+            final long started = System.nanoTime();
+            final AppointmentIndex index = DeltaSync.getAppointmentIndex();
+            final boolean any = MatchAny.isSelected();
+            CompressedBitmap matched = null;
+            if (C != null || D != null)
+                matched = combine(matched, index.withCustomers(DeltaSync.getCustomerIndex().find(C, D)), any);
+            if (contact != null)
+                matched = combine(matched, index.withContact(contact.getContactId()), any);
+            if (user != null)
+                matched = combine(matched, index.withUser(user), any);
+            if (from != null || to != null)
+                matched = combine(matched, index.startingBetween(from == null ? LocalDate.MIN : from, to == null ? LocalDate.MAX : to), any);
+            if (type != null) {
+                if (ExcludeType.isSelected())
+                    matched = (matched == null ? index.all() : matched).andNot(index.withType(type));
+                else
+                    matched = combine(matched, index.withType(type), any);
+            }
+
+            final List<Appointment> found = index.lookup(matched);
+            final long micros = (System.nanoTime() - started) / 1000;
+            if (this.pendingAppts != null)
+                this.pendingAppts.cancel(true);
+            this.apptRadios.selectToggle(null);
+            AppTable.setItems(FXCollections.observableArrayList(found));
+            FilterResult.setText(String.format("%d appointments found in %d \u00b5s", found.size(), micros));
+        });
+    }
+
+    private static CompressedBitmap combine(CompressedBitmap matched, CompressedBitmap with, boolean any) {
+        if (matched == null)
+            return with;
+        return any ? matched.or(with) : matched.and(with);
+    }
+
+    /**
+     * Clears the filter panel and shows all appointments.
+     *
+     * @param actionEvent
+     */
+    public void onClearApptFiltersAction(ActionEvent actionEvent) {
+        this.clearingFilters = true;
+        FilterCountry.setValue(null);
+        FilterDivision.setValue(null);
+        FilterContact.setValue(null);
+        FilterUser.clear();
+        FilterType.setValue(null);
+        ExcludeType.setSelected(false);
+        FilterFrom.setValue(null);
+        FilterTo.setValue(null);
+        MatchAny.setSelected(false);
+        this.clearingFilters = false;
+
+        FilterResult.setText("");
+        AllAppts.setSelected(true);
+    }
+
+    /**
+     * Shows the appointments for the selected <i>apptRadios</i> toggle in <i>AppTable</i>: the
+     * current week, the current month, the days chosen with <i>RangeStart</i> and <i>RangeEnd</i>,
+     * or all appointments.
+     *
+     * @param toggle The selected toggle
+     */
+    private void showSelectedAppointments(Toggle toggle) {
+        if (this.pendingAppts != null)
+            this.pendingAppts.cancel(true);
+
+        final LocalDate today = LocalDate.now();
+        if (toggle == Weekly) {
+            final LocalDate weekStarts = Time.startOfWeek(today);
+            showAppointmentsBetween(weekStarts.atStartOfDay(), weekStarts.plusWeeks(1).atStartOfDay());
+        }
+        else if (toggle == Monthly) {
+            final LocalDate monthStarts = Time.startOfMonth(today);
+            showAppointmentsBetween(monthStarts.atStartOfDay(), monthStarts.plusMonths(1).atStartOfDay());
+        }
+        else if (toggle == DateRange) {
+            // a missing start is today, and a missing or earlier end is the start
+            final LocalDate from = RangeStart.getValue() == null ? today : RangeStart.getValue();
+            final LocalDate to = RangeEnd.getValue() == null || RangeEnd.getValue().isBefore(from) ? from : RangeEnd.getValue();
+            showAppointmentsBetween(from.atStartOfDay(), to.plusDays(1).atStartOfDay());
+        }
+        else
+            AppTable.setItems(this.pagedAppts);
+    }
+
+    /**
+     * Shows only the appointments starting within a range of time in <i>AppTable</i>.
+     * Once this screen has synced, the range is read from the synced appointments' start time
+     * index; before then it is queried from the database.  Either way, only the appointments
+     * in the range are visited.
+     *
+     * @param from The earliest start time, inclusive
+     * @param to The latest start time, exclusive
+     */
+    private void showAppointmentsBetween(LocalDateTime from, LocalDateTime to) {
+        if (this.synced) {
+            AppTable.setItems(FXCollections.observableArrayList(DeltaSync.getStartTimeIndex().findStartingBetween(from, to)));
+            return;
+        }
+
+        this.pendingAppts = AsyncDB.supply(() -> JDBC.loadAppointmentsBetween(from, to));
+        this.pendingAppts.whenCompleteAsync((loaded, error) -> {
+            if (error instanceof CancellationException)
+                return;
+            if (error != null)
+                Dialogs.alertUser(Alert.AlertType.ERROR, "SQL Error", "SQL Error", AsyncDB.causeOf(error).getMessage());
+            else
+                AppTable.setItems(FXCollections.observableArrayList(loaded));
+        }, AsyncDB.fxThread);
+    }
+
     /**
      * Sets the active user. This method hides the Login button, displays the current
      * username, and populates the Combo Boxes and Tables.
@@ -229,8 +657,7 @@ public class MainScreen implements Initializable {
         UserLabel.setVisible(true);
         UserLabel.setText(String.format("Logged in as %s.", user.getUserName()));
 
-        CountryCombo.setItems(this.countries);
-        CountryCombo.setConverter(new StringConverter<Country>() {
+        final StringConverter<Country> countryConverter = new StringConverter<>() {
 
             @Override
             public String toString(Country country) {
@@ -239,15 +666,13 @@ public class MainScreen implements Initializable {
 
             @Override
             public Country fromString(String s) {
-                for (final Country C : countries)
-                    if (C.getCountry().equalsIgnoreCase(s))
-                        return C;
-                return null;
+                return ReferenceData.findCountry(s);
             }
-        });
+        };
+        CountryCombo.setItems(this.countries);
+        CountryCombo.setConverter(countryConverter);
 
-        DivisionCombo.setItems(this.divisions);
-        DivisionCombo.setConverter(new StringConverter<Division>() {
+        final StringConverter<Division> divisionConverter = new StringConverter<>() {
 
             @Override
             public String toString(Division division) {
@@ -256,46 +681,64 @@ public class MainScreen implements Initializable {
 
             @Override
             public Division fromString(String s) {
-                for (final Division D : divisions)
-                    if (D.getDivision().equalsIgnoreCase(s))
-                        return D;
-                return null;
+                return ReferenceData.findDivision(s);
             }
-        });
+        };
+        DivisionCombo.setItems(this.filteredDivisions);
+        DivisionCombo.setConverter(divisionConverter);
+
+        FilterCountry.setItems(this.countries);
+        FilterCountry.setConverter(countryConverter);
+        FilterDivision.setItems(this.filterDivisions);
+        FilterDivision.setConverter(divisionConverter);
+        FilterContact.setItems(this.filterContacts);
+        FilterType.setItems(this.filterTypes);
 
-        AppTable.setItems(this.appts);
+        AppTable.setItems(this.pagedAppts);
 
-        CustomerTable.setItems(this.customers);
+        CustomerTable.setItems(this.pagedCustomers);
     }
 
     /**
      * Checks for upcoming appointments. Checks the logged-in user's appointments for an appointment beginning within 15 minutes.
+     * Only the user's appointments within that window are read from the database.
      */
     public void checkForUpcomingAppts() {
-        if (this.user != null && this.appts != null && this.appts.size() > 0) {
+        if (this.user != null) {
             final LocalDateTime now       = LocalDateTime.now();
             final LocalDateTime timeFrame = now.plusMinutes(15);
-            String alertOutput = "You do not have any upcoming appointments within the next 15 minutes.";
+            final int userId = this.user.getUserId();
+
+            final CompletableFuture<List<Appointment>> lookup;
+            if (this.synced) {
+                final Appointment next = DeltaSync.getStartTimeIndex().findFirstStartingBetween(userId, now, timeFrame);
+                lookup = CompletableFuture.completedFuture(next == null ? List.of() : List.of(next));
+            }
+            else
+                lookup = AsyncDB.supply(() -> JDBC.loadAppointmentsBetween(now, timeFrame, 0, 0, userId));
+
+            lookup.whenCompleteAsync((upcoming, error) -> {
+                if (error != null) {
+                    Dialogs.alertUser(Alert.AlertType.ERROR, "SQL Error", "SQL Error", AsyncDB.causeOf(error).getMessage());
+                    return;
+                }
 
-            for (final Appointment A : this.appts) {
-                if (A.getUserId() != this.user.getUserId())
-                    continue;
-                if ((A.getStart().isAfter(now) || A.getStart().isEqual(now))
-                        && A.getStart().isBefore(timeFrame)) {
+                String alertOutput = "You do not have any upcoming appointments within the next 15 minutes.";
+                if (!upcoming.isEmpty()) {
+                    final Appointment A = upcoming.get(0);
                     alertOutput = String.format("Customer ID %d has an appointment starting at %s on %s, %s.",
                             A.getCustomerId(),
                             A.getStart().toLocalTime().format(DateTimeFormatter.ofPattern("HH:mm")),
                             A.getStart().getDayOfWeek().getDisplayName(TextStyle.FULL, Locale.getDefault()),
                             A.getStart().toLocalDate().format(DateTimeFormatter.ofPattern("MM-dd-yyyy")));
-                    break;
                 }
-            }
 
-            Dialogs.alertUser(
-                    Alert.AlertType.INFORMATION,
-                    "Upcoming Appointments",
-                    "Upcoming Appointments",
-                    alertOutput);
+                Dialogs.alertUser(
+                        Alert.AlertType.INFORMATION,
+                        "Upcoming Appointments",
+                        "Upcoming Appointments",
+                        alertOutput);
+            }, AsyncDB.fxThread);
         }
     }
 
@@ -328,8 +771,8 @@ public class MainScreen implements Initializable {
         CountryCombo.getSelectionModel().clearSelection();
         DivisionCombo.getSelectionModel().clearSelection();
 
-        DivisionCombo.setItems(this.divisions);
-        CustomerTable.setItems(this.customers);
+        this.filteredDivisions.setPredicate(null);
+        CustomerTable.setItems(this.pagedCustomers);
     }
 
     // Customer Actions
@@ -348,6 +791,7 @@ public class MainScreen implements Initializable {
             stage.setScene(new Scene(loader.load()));
             CustomerScreen controller = loader.getController();
             controller.setUser(this.user);
+            controller.setMainScreen(this);
             controller.passCountriesAndDivisions(this.countries, this.divisions);
             controller.setCustomer(customer);
             stage.show();
@@ -375,7 +819,7 @@ public class MainScreen implements Initializable {
      * @param actionEvent
      */
     public void onEditCustomerAction(ActionEvent actionEvent) {
-        Customer toEdit = (Customer) CustomerTable.getSelectionModel().getSelectedItem();
+        Customer toEdit = CustomerTable.getSelectionModel().getSelectedItem();
         if (toEdit == null) {
             Dialogs.alertUser(
                     Alert.AlertType.ERROR,
@@ -394,14 +838,14 @@ public class MainScreen implements Initializable {
      * <br><br>
      *
      * A lambda function is used in the filtering of list of appointments.
-     * The .filtered function takes a <i>Predicate</i>, which is
+     * The .removeIf function takes a <i>Predicate</i>, which is
      * created and passed anonymously using a lambda.  Each item in the
-     * list is compared using the predicate, and added to a <i>FilteredList</i>.
+     * list is compared using the predicate, and removed if it matches.
      *
      * @param actionEvent
      */
     public void onDeleteCustomerAction(ActionEvent actionEvent) {
-        Customer toDelete = (Customer) CustomerTable.getSelectionModel().getSelectedItem();
+        Customer toDelete = CustomerTable.getSelectionModel().getSelectedItem();
         if (toDelete == null) {
             Dialogs.alertUser(
                     Alert.AlertType.ERROR,
@@ -418,30 +862,28 @@ public class MainScreen implements Initializable {
             return;
 
         // delete customer and associated appointments
-        try {
-            JDBC.deleteCustomerAndAppointments(toDelete);
-            customers.remove(toDelete);
+        AsyncDB.run(() -> JDBC.deleteCustomersAndAppointments(List.of(toDelete))).whenCompleteAsync((done, error) -> {
+            if (error != null) {
+                Dialogs.alertUser(Alert.AlertType.ERROR, "Delete Customer", "Delete Customer", AsyncDB.causeOf(error).getMessage());
+                return;
+            }
 
-            appts = appts.filtered(appt -> (appt.getCustomerId() != toDelete.getCustomerId()));
+            DeltaSync.removeCustomers(List.of(toDelete));
+            if (CustomerTable.getItems() == this.pagedCustomers)
+                this.pagedCustomers.refresh();
 
-            /*List<Appointment> deleteAppts = new ArrayList<>();
-            appts.forEach(appt -> {
-                if (appt.getCustomerId() == toDelete.getCustomerId())
-                    deleteAppts.add(appt);
-            });
-            deleteAppts.forEach(appt -> {
-                appts.remove(appt);
-            });*/
+            final ObservableList<Appointment> shown = AppTable.getItems();
+            if (shown == this.pagedAppts)
+                this.pagedAppts.refresh();
+            else
+                shown.removeIf(appt -> appt.getCustomerId() == toDelete.getCustomerId());
 
             Dialogs.alertUser(
                     Alert.AlertType.INFORMATION,
                     "Customer Deleted",
                     "Customer Deleted",
                     toDelete.getName() + " and their associated appointments have been deleted.");
-        }
-        catch (SQLException sqle) {
-            Dialogs.alertUser(Alert.AlertType.ERROR, "Delete Customer", "Delete Customer", sqle.getMessage());
-        }
+        }, AsyncDB.fxThread);
     }
 
     // Appointment Actions
@@ -450,12 +892,11 @@ public class MainScreen implements Initializable {
      * Shows the Appointment Screen.
      * If <b>appointment</b> is null, user can create a new appointment for the given customer.
      * Otherwise, the form is populated with the customer's appointment data for editing.
-     *
-     * A lambda function is used to filter appointments.
-     *
-     * The .filtered function takes a <i>Predicate</i>, which is
-     * created and passed anonymously using a lambda.  Each item in the
-     * list is compared using the predicate, and added to a <i>FilteredList</i>.
+     * <br><br>
+     * The form opens straight away, without syncing every appointment first.  If this screen has
+     * already synced, the form checks for scheduling conflicts against the synced appointments'
+     * conflict index, which only visits the trees of the appointment's own customer, contact,
+     * and user.  Otherwise the database makes the same check for just those rows.
      *
      * @param customer The customer with the appointment
      * @param appointment The appointment to edit, or null
@@ -467,14 +908,13 @@ public class MainScreen implements Initializable {
             stage.setScene(new Scene(loader.load()));
             AppointmentScreen controller = loader.getController();
             controller.setUser(this.user);
-            if (customer != null) {
+            controller.setMainScreen(this);
+            if (this.synced)
+                controller.setConflictIndex(DeltaSync.getConflictIndex());
+            if (customer != null)
                 controller.setCustomer(customer);
-                controller.setCustomerAppointments(this.appts.filtered(appt -> appt.getCustomerId() == customer.getCustomerId()));
-            }
-            if (appointment != null) {
+            if (appointment != null)
                 controller.setAppointment(appointment);
-                controller.setCustomerAppointments(this.appts.filtered(appt -> appt.getCustomerId() == appointment.getCustomerId()));
-            }
             stage.show();
         }
         catch (IOException e) {
@@ -489,7 +929,7 @@ public class MainScreen implements Initializable {
      * @param actionEvent
      */
     public void onAddApptAction(ActionEvent actionEvent) {
-        Customer customer = (Customer) CustomerTable.getSelectionModel().getSelectedItem();
+        Customer customer = CustomerTable.getSelectionModel().getSelectedItem();
         if (customer == null) {
             Dialogs.alertUser(
                     Alert.AlertType.ERROR,
@@ -503,13 +943,14 @@ public class MainScreen implements Initializable {
     }
 
     /**
-     * Handles the <b>Edit</b> appointment button action.
+     * Handles the <b>Edit</b> appointment button action.  The form opens once the appointment's
+     * Description and audit fields are loaded, if they were not already.
      * 
      * @see #showAppointmentScreen(Customer, Appointment)
      * @param actionEvent
      */
     public void onEditApptAction(ActionEvent actionEvent) {
-        Appointment toEdit = (Appointment) AppTable.getSelectionModel().getSelectedItem();
+        Appointment toEdit = AppTable.getSelectionModel().getSelectedItem();
         if (toEdit == null) {
             Dialogs.alertUser(
                     Alert.AlertType.ERROR,
@@ -518,8 +959,15 @@ public class MainScreen implements Initializable {
                     "You must select an appointment to edit.");
             return;
         }
-        ((Node) actionEvent.getSource()).getScene().getWindow().hide();
-        showAppointmentScreen(null, toEdit);
+        final Window window = ((Node) actionEvent.getSource()).getScene().getWindow();
+        AppointmentDetails.load(toEdit).whenCompleteAsync((loaded, error) -> {
+            if (error != null) {
+                Dialogs.alertUser(Alert.AlertType.ERROR, "Edit Appointment", "Edit Appointment", AsyncDB.causeOf(error).getMessage());
+                return;
+            }
+            window.hide();
+            showAppointmentScreen(null, loaded);
+        }, AsyncDB.fxThread);
     }
 
     /**
@@ -529,7 +977,7 @@ public class MainScreen implements Initializable {
      * @param actionEvent
      */
     public void onDeleteApptAction(ActionEvent actionEvent) {
-        Appointment toDelete = (Appointment) AppTable.getSelectionModel().getSelectedItem();
+        Appointment toDelete = AppTable.getSelectionModel().getSelectedItem();
         if (toDelete == null) {
             Dialogs.alertUser(
                     Alert.AlertType.ERROR,
@@ -542,18 +990,23 @@ public class MainScreen implements Initializable {
             if (!confirm)
                 return;
         }
-        try {
-            JDBC.deleteAppointment(toDelete);
-            this.appts.remove(toDelete);
+        AsyncDB.run(() -> JDBC.deleteAppointment(toDelete)).whenCompleteAsync((done, error) -> {
+            if (error != null) {
+                Dialogs.alertUser(Alert.AlertType.ERROR, "Delete Appointment", "Delete Appointment", AsyncDB.causeOf(error).getMessage());
+                return;
+            }
+
+            this.appts.removeIf(appt -> appt.getApptId() == toDelete.getApptId());
+            if (AppTable.getItems() == this.pagedAppts)
+                this.pagedAppts.refresh();
+            else
+                AppTable.getItems().remove(toDelete);
             Dialogs.alertUser(
                     Alert.AlertType.INFORMATION,
                     "Appointment Cancelled",
                     "Appointment Cancelled",
                             String.format("The following appointment has been cancelled:\nID: %d \tType: %s", toDelete.getApptId(), toDelete.getType()));
-        }
-        catch (SQLException sqle) {
-            Dialogs.alertUser(Alert.AlertType.ERROR, "Delete Appointment", "Delete Appointment", sqle.getMessage());
-        }
+        }, AsyncDB.fxThread);
     }
 
     /**
@@ -592,53 +1045,52 @@ public class MainScreen implements Initializable {
 
     /**
      * Handles generating a report based on the selected radio button,
-     * and displaying it in a modal window.
+     * and displaying it in a modal window.  The report is generated in the
+     * background; generating another report cancels one still in progress.
      * 
      * @see #showReportWindow(String, String, int, int)
      * @param actionEvent
      */
     public void onGenerateReportAction(ActionEvent actionEvent) {
-        final String windowTitle, report;
+        final String windowTitle;
+        final Callable<String> generator;
         final int width, height;
         if (ReportAppts.isSelected()) {
             windowTitle = "Total of Customer Appointments";
-            try {
-                report = JDBC.generateApptReport();
-                width = 800;
-                height = 600;
-            } catch (SQLException sqle) {
-                Dialogs.alertUser(Alert.AlertType.ERROR, "Error Generating Report", "Error Generating Report", "There was an error in generating the requested report.");
-                return;
-            }
+            generator = JDBC::generateApptReport;
+            width = 800;
+            height = 600;
         }
         else if (ReportContacts.isSelected()) {
             windowTitle = "Schedule for each Contact";
-            try {
-                report = JDBC.generateContactsReport();
-                width = 1500;
-                height = 600;
-            } catch (SQLException sqle) {
-                Dialogs.alertUser(Alert.AlertType.ERROR, "Error Generating Report", "Error Generating Report", "There was an error in generating the requested report.");
-                return;
-            }
+            generator = JDBC::generateContactsReport;
+            width = 1500;
+            height = 600;
         }
         else if (ReportUsers.isSelected()) {
             windowTitle = "User Activity Report";
-            try {
-                report = JDBC.generateUserReport();
-                width = 800;
-                height = 600;
-            } catch (SQLException sqle) {
-                Dialogs.alertUser(Alert.AlertType.ERROR, "Error Generating Report", "Error Generating Report", "There was an error in generating the requested report.");
-                System.err.println(sqle.getMessage());
-                return;
-            }
+            generator = JDBC::generateUserReport;
+            width = 800;
+            height = 600;
         }
         else {
             Dialogs.alertUser(Alert.AlertType.WARNING, "Generate Report", "Select report type",
                     "You must first choose a type of report to generate.");
             return;
         }
-        showReportWindow(windowTitle, report, width, height);
+
+        if (this.pendingReport != null)
+            this.pendingReport.cancel(true);
+        this.pendingReport = AsyncDB.supply(generator);
+        this.pendingReport.whenCompleteAsync((report, error) -> {
+            if (error instanceof CancellationException)
+                return;
+            if (error != null) {
+                Dialogs.alertUser(Alert.AlertType.ERROR, "Error Generating Report", "Error Generating Report", "There was an error in generating the requested report.");
+                System.err.println(AsyncDB.causeOf(error).getMessage());
+                return;
+            }
+            showReportWindow(windowTitle, report, width, height);
+        }, AsyncDB.fxThread);
     }
 }
@@ -0,0 +1,282 @@
+package database;
+
+import model.Appointment;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.zone.ZoneRules;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A read-only store of Appointments, held column by column in parallel primitive arrays.
+ * <br><br>
+ * IDs are held as <b>int</b>s and times as <b>long</b> seconds, rather than as a <i>LocalDateTime</i>
+ * (and its <i>LocalDate</i> and <i>LocalTime</i>) per field.  Type, Location, Contact name, and the
+ * audit user names repeat across many rows, so each is held as an <b>int</b> code into a table of its
+ * distinct values.  Only Title and Description are held as a String per row.  A row costs around
+ * 80 bytes plus its Title and Description, against several hundred as an Appointment object, and
+ * loading fills the arrays without building any <i>java.time</i> objects.
+ * <br><br>
+ * Rows are loaded with only the columns the main grid needs.  A row's Description and its
+ * creation and update audit fields are filled in later by {@link AppointmentDetails}, for the
+ * rows that are shown or edited, and read as null until then.
+ * <br><br>
+ * Rows are read through {@link View}s: flyweight Appointments that decode their row on each call
+ * to a getter.  A View has no state of its own besides its row number, and cannot be changed;
+ * Appointments in the shared list are replaced when edited, never changed in place.
+ *
+ * @author Jonathan Hawranko
+ */
+public class AppointmentColumns {
+    private int      size;
+    private int[]    ids;
+    private String[] titles;
+    private String[] descs;
+    private int[]    locations;
+    private int[]    types;
+    private long[]   starts;
+    private long[]   ends;
+    private long[]   created;
+    private int[]    createdBy;
+    private long[]   updated;
+    private int[]    updatedBy;
+    private int[]    customerIds;
+    private int[]    userIds;
+    private int[]    contactIds;
+    private int[]    contacts;
+    private long     latestUpdate = Long.MIN_VALUE;
+    private final BitSet detailed = new BitSet(); // rows whose Description and audit fields are filled in
+    private View[]   views;
+
+    private final Codes locationCodes = new Codes();
+    private final Codes typeCodes     = new Codes();
+    private final Codes contactCodes  = new Codes();
+    private final Codes userCodes     = new Codes();
+    private final ZoneRules zone      = ZoneId.systemDefault().getRules();
+
+    /**
+     * Constructor for an empty store, sized to hold <b>expected</b> rows before growing.
+     *
+     * @param expected the expected number of rows
+     */
+    AppointmentColumns(int expected) {
+        final int capacity = Math.max(16, expected);
+        ids = new int[capacity];
+        titles = new String[capacity];
+        descs = new String[capacity];
+        locations = new int[capacity];
+        types = new int[capacity];
+        starts = new long[capacity];
+        ends = new long[capacity];
+        created = new long[capacity];
+        createdBy = new int[capacity];
+        updated = new long[capacity];
+        updatedBy = new int[capacity];
+        customerIds = new int[capacity];
+        userIds = new int[capacity];
+        contactIds = new int[capacity];
+        contacts = new int[capacity];
+    }
+
+    /**
+     * Appends a row, without its Description and audit fields.  Times are seconds since the epoch,
+     * as read by {@link JDBC#readEpochSecond}, and are stored as the local date-times they fall on.
+     */
+    void add(int id, String title, String location, String type, long start, long end, long lastUpdate,
+             int customerId, int userId, int contactId, String contact) {
+        if (size == ids.length)
+            grow();
+
+        ids[size] = id;
+        titles[size] = title;
+        locations[size] = locationCodes.encode(location);
+        types[size] = typeCodes.encode(type);
+        starts[size] = local(start);
+        ends[size] = local(end);
+        updated[size] = local(lastUpdate);
+        customerIds[size] = customerId;
+        userIds[size] = userId;
+        contactIds[size] = contactId;
+        contacts[size] = contactCodes.encode(contact);
+        latestUpdate = Math.max(latestUpdate, updated[size]);
+        size++;
+        views = null;
+    }
+
+    private void grow() {
+        final int capacity = size + (size >> 1);
+        ids = Arrays.copyOf(ids, capacity);
+        titles = Arrays.copyOf(titles, capacity);
+        descs = Arrays.copyOf(descs, capacity);
+        locations = Arrays.copyOf(locations, capacity);
+        types = Arrays.copyOf(types, capacity);
+        starts = Arrays.copyOf(starts, capacity);
+        ends = Arrays.copyOf(ends, capacity);
+        created = Arrays.copyOf(created, capacity);
+        createdBy = Arrays.copyOf(createdBy, capacity);
+        updated = Arrays.copyOf(updated, capacity);
+        updatedBy = Arrays.copyOf(updatedBy, capacity);
+        customerIds = Arrays.copyOf(customerIds, capacity);
+        userIds = Arrays.copyOf(userIds, capacity);
+        contactIds = Arrays.copyOf(contactIds, capacity);
+        contacts = Arrays.copyOf(contacts, capacity);
+    }
+
+    /**
+     * Returns the number of rows.
+     *
+     * @return the row count
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the latest <i>Last_Update</i> of any row.
+     *
+     * @return the latest update time, or null if there are no rows
+     */
+    public LocalDateTime getLatestUpdate() {
+        return size == 0 ? null : toTime(latestUpdate);
+    }
+
+    /**
+     * Returns a View of every row, in the order loaded.  The same View is returned for a row each
+     * time, so Views can be held in lists and indexes that compare Appointments by identity.
+     *
+     * @return the Views
+     */
+    public List<Appointment> views() {
+        if (views == null) {
+            views = new View[size];
+            for (int row = 0; row < size; row++)
+                views[row] = new View(row);
+        }
+        final View[] rows = views;
+        return new AbstractList<Appointment>() {
+            @Override
+            public Appointment get(int index) {
+                return rows[index];
+            }
+
+            @Override
+            public int size() {
+                return rows.length;
+            }
+        };
+    }
+
+    private long local(long epochSecond) {
+        return epochSecond + zone.getOffset(Instant.ofEpochSecond(epochSecond)).getTotalSeconds();
+    }
+
+    private static long toSeconds(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static LocalDateTime toTime(long seconds) {
+        return LocalDateTime.ofEpochSecond(seconds, 0, ZoneOffset.UTC);
+    }
+
+    /**
+     * A read-only Appointment that reads its fields from one row of the store.
+     */
+    public final class View extends Appointment {
+        private final int row;
+
+        private View(int row) {
+            this.row = row;
+        }
+
+        @Override public int           getApptId()       { return ids[row]; }
+        @Override public String        getTitle()        { return titles[row]; }
+        @Override public String        getDesc()         { return hasDetails() ? descs[row] : null; }
+        @Override public String        getLocation()     { return locationCodes.decode(locations[row]); }
+        @Override public String        getType()         { return typeCodes.decode(types[row]); }
+        @Override public LocalDateTime getStart()        { return toTime(starts[row]); }
+        @Override public LocalDateTime getEnd()          { return toTime(ends[row]); }
+        @Override public LocalDateTime getCreateDate()   { return hasDetails() ? toTime(created[row]) : null; }
+        @Override public String        getCreatedBy()    { return hasDetails() ? userCodes.decode(createdBy[row]) : null; }
+        @Override public LocalDateTime getLastUpdate()   { return toTime(updated[row]); }
+        @Override public String        getLastUpdatedBy(){ return hasDetails() ? userCodes.decode(updatedBy[row]) : null; }
+        @Override public int           getCustomerId()   { return customerIds[row]; }
+        @Override public int           getUserId()       { return userIds[row]; }
+        @Override public int           getContactId()    { return contactIds[row]; }
+        @Override public String        getContact()      { return contactCodes.decode(contacts[row]); }
+
+        @Override public void setApptId(int apptId)                     { throw readOnly(); }
+        @Override public void setTitle(String title)                    { throw readOnly(); }
+        @Override public void setDesc(String desc)                      { throw readOnly(); }
+        @Override public void setLocation(String location)              { throw readOnly(); }
+        @Override public void setType(String type)                      { throw readOnly(); }
+        @Override public void setStart(LocalDateTime start)             { throw readOnly(); }
+        @Override public void setEnd(LocalDateTime end)                 { throw readOnly(); }
+        @Override public void setCreateDate(LocalDateTime createDate)   { throw readOnly(); }
+        @Override public void setCreatedBy(String createdBy)            { throw readOnly(); }
+        @Override public void setLastUpdate(LocalDateTime lastUpdate)   { throw readOnly(); }
+        @Override public void setLastUpdatedBy(String lastUpdatedBy)    { throw readOnly(); }
+        @Override public void setCustomerId(int customerId)             { throw readOnly(); }
+        @Override public void setUserId(int userId)                     { throw readOnly(); }
+        @Override public void setContactId(int contactId)               { throw readOnly(); }
+        @Override public void setContact(String contact)                { throw readOnly(); }
+
+        /**
+         * Returns whether the row's Description and audit fields have been filled in.
+         *
+         * @return true once the details are loaded
+         */
+        boolean hasDetails() {
+            return detailed.get(row);
+        }
+
+        /**
+         * Fills in the row's Description and audit fields.  Called on the JavaFX Application Thread.
+         *
+         * @param details an Appointment holding the loaded Description and audit fields
+         */
+        void fillDetails(Appointment details) {
+            descs[row] = details.getDesc();
+            created[row] = toSeconds(details.getCreateDate());
+            createdBy[row] = userCodes.encode(details.getCreatedBy());
+            updatedBy[row] = userCodes.encode(details.getLastUpdatedBy());
+            detailed.set(row);
+        }
+
+        private UnsupportedOperationException readOnly() {
+            return new UnsupportedOperationException("Appointment " + getApptId() + " is a read-only view");
+        }
+    }
+
+    /**
+     * The distinct values of a column, each given an <b>int</b> code in the order first seen.
+     * Null is coded as -1.
+     */
+    private static final class Codes {
+        private final List<String>         values = new ArrayList<>();
+        private final Map<String, Integer> codes  = new HashMap<>();
+
+        int encode(String value) {
+            if (value == null)
+                return -1;
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = values.size();
+                values.add(value);
+                codes.put(value, code);
+            }
+            return code;
+        }
+
+        String decode(int code) {
+            return code < 0 ? null : values.get(code);
+        }
+    }
+}
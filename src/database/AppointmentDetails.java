@@ -0,0 +1,126 @@
+package database;
+
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.beans.property.SimpleStringProperty;
+import javafx.beans.property.StringProperty;
+import javafx.beans.value.ObservableValue;
+import model.Appointment;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Loads the Description and audit fields of Appointments that were loaded without them.
+ * <br><br>
+ * {@link JDBC#loadAppointmentColumns()} reads only the columns the main grid shows.  When a
+ * table cell asks for a Description that has not been loaded, it is given a property that is
+ * filled in once the Description arrives.  Requests made during the same pulse, such as every
+ * visible row of a table, are gathered and fetched together in one query off the JavaFX
+ * Application Thread.  Before an Appointment is edited, {@link #load} fetches its details
+ * so the form and the saved copy have them.  If a batch cannot be fetched, the failure is
+ * logged, and each Description in it is fetched again the next time it is requested.
+ * <br><br>
+ * Every method is called on the JavaFX Application Thread.
+ *
+ * @author Jonathan Hawranko
+ */
+public abstract class AppointmentDetails {
+    private static final Map<AppointmentColumns.View, StringProperty> queued   = new LinkedHashMap<>();
+    private static final Map<AppointmentColumns.View, StringProperty> inFlight = new HashMap<>();
+    private static final Map<AppointmentColumns.View, StringProperty> failed   = new HashMap<>();
+    private static final Logger log = Logger.getLogger(AppointmentDetails.class.getName());
+    private static boolean flushScheduled;
+
+    /**
+     * Returns an Appointment's Description, for a table cell.  If it has not been loaded yet, it
+     * is queued to be fetched with the other Descriptions requested in the same pulse.
+     *
+     * @param appt The Appointment, or null for a row whose page has not loaded yet
+     * @return the Description, or a property that is set once the Description is loaded
+     */
+    public static ObservableValue<String> description(Appointment appt) {
+        if (appt == null)
+            return new ReadOnlyStringWrapper();
+        final AppointmentColumns.View view = partial(appt);
+        if (view == null)
+            return new ReadOnlyStringWrapper(appt.getDesc());
+
+        StringProperty desc = inFlight.get(view);
+        if (desc == null) {
+            // a failed fetch is retried with the property its cells already show
+            final StringProperty retry = failed.remove(view);
+            desc = queued.computeIfAbsent(view, v -> retry == null ? new SimpleStringProperty() : retry);
+        }
+        if (!flushScheduled && !queued.isEmpty()) {
+            flushScheduled = true;
+            Platform.runLater(AppointmentDetails::flush);
+        }
+        return desc;
+    }
+
+    /**
+     * Loads an Appointment's Description and audit fields, if they have not been loaded yet.
+     *
+     * @param appt The Appointment
+     * @return a future completed on the JavaFX Application Thread with <b>appt</b>, once its details are loaded
+     */
+    public static CompletableFuture<Appointment> load(Appointment appt) {
+        final AppointmentColumns.View view = partial(appt);
+        if (view == null)
+            return CompletableFuture.completedFuture(appt);
+        return fetch(List.of(view)).thenApply(done -> appt);
+    }
+
+    private static AppointmentColumns.View partial(Appointment appt) {
+        if (appt instanceof AppointmentColumns.View && !((AppointmentColumns.View) appt).hasDetails())
+            return (AppointmentColumns.View) appt;
+        return null;
+    }
+
+    /**
+     * Fetches the queued Descriptions in one batch, and sets each property once its row is filled in.
+     */
+    private static void flush() {
+        flushScheduled = false;
+        final Map<AppointmentColumns.View, StringProperty> batch = new LinkedHashMap<>(queued);
+        queued.clear();
+        inFlight.putAll(batch);
+
+        fetch(batch.keySet()).whenCompleteAsync((done, error) -> {
+            batch.keySet().forEach(inFlight::remove);
+            if (error != null) {
+                log.log(Level.WARNING, "Unable to load appointment details", AsyncDB.causeOf(error));
+                failed.putAll(batch);
+                return;
+            }
+            batch.forEach((view, desc) -> desc.set(view.getDesc()));
+        }, AsyncDB.fxThread);
+    }
+
+    /**
+     * Fetches and fills in the details of some rows.  The returned future completes on the
+     * JavaFX Application Thread, after the rows are filled in.
+     */
+    private static CompletableFuture<Void> fetch(Collection<AppointmentColumns.View> views) {
+        final Map<Integer, AppointmentColumns.View> byId = new HashMap<>();
+        for (final AppointmentColumns.View V : views)
+            byId.put(V.getApptId(), V);
+        final List<Integer> ids = new ArrayList<>(byId.keySet());
+
+        return AsyncDB.supply(() -> JDBC.loadAppointmentDetails(ids)).thenAcceptAsync(details -> {
+            for (final Appointment D : details) {
+                final AppointmentColumns.View view = byId.get(D.getApptId());
+                if (view != null && !view.hasDetails())
+                    view.fillDetails(D);
+            }
+        }, AsyncDB.fxThread);
+    }
+}
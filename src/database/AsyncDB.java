@@ -0,0 +1,170 @@
+package database;
+
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyIntegerProperty;
+import javafx.beans.property.ReadOnlyIntegerWrapper;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs database work off the JavaFX Application Thread.
+ * <br><br>
+ * Work is queued on a bounded pool of daemon worker threads, no larger than the connection
+ * pool, and each call returns a <i>CompletableFuture</i>.  Handlers that touch the UI are
+ * attached with {@link #fxThread}, which runs them back on the JavaFX Application Thread,
+ * so the event thread only ever renders.  Cancelling a returned future interrupts its work
+ * if it has started, and its result is never delivered.  The number of calls in progress is
+ * published for binding to a progress indicator.
+ *
+ * @author Jonathan Hawranko
+ */
+public abstract class AsyncDB {
+    private static final AtomicInteger workerCount = new AtomicInteger();
+    private static final ExecutorService workers = new ThreadPoolExecutor(
+            JDBC.getPoolSize(), JDBC.getPoolSize(), 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+                Thread t = new Thread(r, "db-worker-" + workerCount.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+    private static final ReadOnlyIntegerWrapper pending = new ReadOnlyIntegerWrapper(); // FX thread only
+
+    static {
+        ((ThreadPoolExecutor) workers).allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Runs a task on the JavaFX Application Thread: immediately if called from it, otherwise
+     * with <i>Platform.runLater</i>.  Pass to the <i>...Async</i> methods of a future.
+     */
+    public static final Executor fxThread = task -> {
+        if (Platform.isFxApplicationThread())
+            task.run();
+        else
+            Platform.runLater(task);
+    };
+
+    /**
+     * Database work that returns nothing.
+     */
+    @FunctionalInterface
+    public interface Work {
+        void run() throws Exception;
+    }
+
+    /**
+     * Runs database work on a worker thread.
+     *
+     * @param work The work to run
+     * @param <T> The type of result
+     * @return a future completed with the result, or with the exception the work threw
+     */
+    public static <T> CompletableFuture<T> supply(Callable<T> work) {
+        final Cancellable<T> future = new Cancellable<>();
+        fxThread.execute(() -> pending.set(pending.get() + 1));
+        future.whenCompleteAsync((result, error) -> pending.set(pending.get() - 1), fxThread);
+
+        future.task = workers.submit(() -> {
+            if (future.isDone())
+                return;
+            try {
+                future.complete(work.call());
+            }
+            catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Runs database work that returns nothing on a worker thread.
+     *
+     * @param work The work to run
+     * @return a future completed when the work is done, or with the exception it threw
+     */
+    public static CompletableFuture<Void> run(Work work) {
+        return supply(() -> {
+            work.run();
+            return null;
+        });
+    }
+
+    /**
+     * Runs a task on the JavaFX Application Thread and waits for its result.  Used by database
+     * work that must update lists the UI may be bound to.  Runs immediately if called from it.
+     *
+     * @param task The task to run
+     * @param <T> The type of result
+     * @return the task's result
+     */
+    static <T> T callOnFxThread(Supplier<T> task) {
+        if (Platform.isFxApplicationThread())
+            return task.get();
+
+        final FutureTask<T> onFx = new FutureTask<>(task::get);
+        Platform.runLater(onFx);
+        try {
+            return onFx.get();
+        }
+        catch (ExecutionException ee) {
+            throw new CompletionException(ee.getCause());
+        }
+        catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for the JavaFX Application Thread.");
+        }
+    }
+
+    /**
+     * Runs a task on the JavaFX Application Thread and waits for it to finish.
+     *
+     * @see #callOnFxThread(Supplier)
+     * @param task The task to run
+     */
+    static void runOnFxThread(Runnable task) {
+        callOnFxThread(() -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /**
+     * Returns the number of calls queued or in progress.  Only changes on the JavaFX Application Thread.
+     *
+     * @return the pending call count
+     */
+    public static ReadOnlyIntegerProperty pendingProperty() {
+        return pending.getReadOnlyProperty();
+    }
+
+    /**
+     * Returns the exception that caused a future to fail, unwrapping <i>CompletionException</i>s
+     * added by dependent stages.
+     *
+     * @param error The exception passed to a handler
+     * @return the original exception
+     */
+    public static Throwable causeOf(Throwable error) {
+        while (error instanceof CompletionException && error.getCause() != null)
+            error = error.getCause();
+        return error;
+    }
+
+    /**
+     * A future that interrupts the worker running it when cancelled.
+     */
+    private static final class Cancellable<T> extends CompletableFuture<T> {
+        volatile Future<?> task;
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            final boolean cancelled = super.cancel(mayInterruptIfRunning);
+            final Future<?> running = task;
+            if (cancelled && running != null)
+                running.cancel(true);
+            return cancelled;
+        }
+    }
+}
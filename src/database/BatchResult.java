@@ -0,0 +1,94 @@
+package database;
+
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The outcome of a batched write: how many rows were saved, and the error for each row that was not.
+ * Rows are identified by their index in the collection that was written.
+ *
+ * @author Jonathan Hawranko
+ */
+public class BatchResult {
+    private final int size;
+    private int       succeeded;
+    private final Map<Integer, SQLException> failures = new TreeMap<>();
+
+    /**
+     * Constructor for a BatchResult.
+     *
+     * @param size The number of rows written
+     */
+    BatchResult(int size) {
+        this.size = size;
+    }
+
+    void addSucceeded(int count) {
+        succeeded += count;
+    }
+
+    void addFailure(int index, SQLException error) {
+        failures.put(index, error);
+    }
+
+    /**
+     * Returns the number of rows written.
+     *
+     * @return the row count
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the number of rows saved.
+     *
+     * @return the saved row count
+     */
+    public int getSucceeded() {
+        return succeeded;
+    }
+
+    /**
+     * Returns the error for each row that was not saved, by row index, in index order.
+     *
+     * @return the failed rows
+     */
+    public Map<Integer, SQLException> getFailures() {
+        return Collections.unmodifiableMap(failures);
+    }
+
+    /**
+     * Returns true if any row was not saved.
+     *
+     * @return true if any row failed, false otherwise
+     */
+    public boolean hasFailures() {
+        return !failures.isEmpty();
+    }
+
+    /**
+     * Throws the first row's error if any row was not saved.  Errors of later rows are
+     * attached to it as suppressed exceptions.
+     *
+     * @throws SQLException if any row failed
+     */
+    public void throwIfFailed() throws SQLException {
+        SQLException first = null;
+        for (final SQLException error : failures.values()) {
+            if (first == null)
+                first = error;
+            else
+                first.addSuppressed(error);
+        }
+        if (first != null)
+            throw first;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d of %d rows saved, %d failed", succeeded, size, failures.size());
+    }
+}
@@ -0,0 +1,524 @@
+package database;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A bounded pool of database connections.
+ * <br><br>
+ * Connections are borrowed with {@link #getConnection()} and returned to the pool
+ * when the borrower calls <i>close()</i> on them, so they are meant to be used in a
+ * <i>try-with-resources</i> block.  Idle connections are validated before being
+ * handed out, and broken connections are discarded and replaced with a fresh one.
+ * A background housekeeper evicts connections that sit idle for too long, and
+ * reports connections that are held longer than the leak threshold.
+ * <br><br>
+ * Each connection keeps the statements prepared from SQL registered with
+ * {@link #cacheStatements} open for reuse, in a {@link StatementCache}.
+ *
+ * @author Jonathan Hawranko
+ */
+public class ConnectionPool implements DataSource {
+    private static final Logger log = Logger.getLogger(ConnectionPool.class.getName());
+
+    private final String url;
+    private final String userName;
+    private final String password;
+    private final int    maxSize;
+    private final Semaphore permits;
+    private final LinkedBlockingDeque<PoolEntry> idle = new LinkedBlockingDeque<>();
+    private final Set<PoolEntry> borrowed = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService housekeeper;
+    private final Set<String> cachedSql = ConcurrentHashMap.newKeySet();
+    private final AtomicLong  statementHits   = new AtomicLong();
+    private final AtomicLong  statementMisses = new AtomicLong();
+    private volatile boolean closed;
+
+    private long borrowTimeoutMillis     = 30_000;
+    private long validationWindowMillis  = 1_000;
+    private int  validationTimeoutSecs   = 2;
+    private long idleTimeoutMillis       = 600_000;
+    private long leakThresholdMillis     = 60_000;
+    private boolean captureBorrowSites;
+    private int  minIdle                 = 1;
+    private int  reconnectAttempts       = 3;
+    private long reconnectBackoffMillis  = 500;
+    private int  statementCacheSize      = 32;
+    private int  loginTimeout;
+
+    /**
+     * Constructor for a ConnectionPool.  No connections are opened until the first one is borrowed.
+     *
+     * @param url The JDBC url of the database
+     * @param userName The database username
+     * @param password The database password
+     * @param maxSize The maximum number of connections open at once
+     */
+    public ConnectionPool(String url, String userName, String password, int maxSize) {
+        this.url = url;
+        this.userName = userName;
+        this.password = password;
+        this.maxSize = maxSize;
+        this.permits = new Semaphore(maxSize, true);
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        this.housekeeper.scheduleWithFixedDelay(this::housekeep, 30, 30, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Borrows a connection from the pool, waiting up to the borrow timeout if every
+     * connection is in use.  Idle connections are validated before being returned, and
+     * a new connection is opened (retrying on failure) if none are usable.
+     *
+     * @return A pooled connection; closing it returns it to the pool
+     * @throws SQLException if the pool is closed, exhausted, or the database cannot be reached
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (closed)
+            throw new SQLException("Connection pool has been closed.", "08003");
+
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS))
+                throw new SQLException(String.format("Timed out after %d ms waiting for a database connection (%d in use).",
+                        borrowTimeoutMillis, borrowed.size()), "08001");
+        }
+        catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection.", "08001", ie);
+        }
+
+        try {
+            PoolEntry entry;
+            while ((entry = idle.pollFirst()) != null) {
+                if (isUsable(entry))
+                    break;
+                entry.closeQuietly();
+            }
+            if (entry == null)
+                entry = new PoolEntry(openPhysicalConnection());
+
+            entry.borrowedAt = System.currentTimeMillis();
+            entry.borrowSite = captureBorrowSites && leakThresholdMillis > 0 ? new Exception("Connection borrowed here") : null;
+            entry.leakReported = false;
+            borrowed.add(entry);
+            return entry.newHandle();
+        }
+        catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens a new connection to the database, retrying with a growing delay if the
+     * database cannot be reached.
+     */
+    private Connection openPhysicalConnection() throws SQLException {
+        SQLException last = null;
+        for (int attempt = 0; attempt < Math.max(1, reconnectAttempts); attempt++) {
+            if (attempt > 0) {
+                try {
+                    Thread.sleep(reconnectBackoffMillis * attempt);
+                }
+                catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            try {
+                return DriverManager.getConnection(url, userName, password);
+            }
+            catch (SQLException sqle) {
+                last = sqle;
+            }
+        }
+        throw last != null ? last : new SQLException("Unable to open a database connection.", "08001");
+    }
+
+    private boolean isUsable(PoolEntry entry) {
+        try {
+            if (entry.physical.isClosed())
+                return false;
+            if (System.currentTimeMillis() - entry.lastUsed < validationWindowMillis)
+                return true;
+            return entry.physical.isValid(validationTimeoutSecs);
+        }
+        catch (SQLException sqle) {
+            return false;
+        }
+    }
+
+    /**
+     * Returns a borrowed connection to the pool.  Any open transaction is rolled back, the
+     * session settings a borrower may have changed are restored, and connections that saw a connection-level failure are discarded.
+     */
+    private void release(PoolEntry entry) {
+        borrowed.remove(entry);
+        try {
+            if (!entry.broken && !entry.physical.isClosed()) {
+                entry.statements.releaseAll();
+                if (!entry.physical.getAutoCommit()) {
+                    entry.physical.rollback();
+                    entry.physical.setAutoCommit(true);
+                }
+                if (entry.physical.isReadOnly())
+                    entry.physical.setReadOnly(false);
+                if (entry.defaultIsolation >= 0)
+                    entry.physical.setTransactionIsolation(entry.defaultIsolation);
+                entry.lastUsed = System.currentTimeMillis();
+                if (!closed) {
+                    idle.offerFirst(entry);
+                    return;
+                }
+            }
+        }
+        catch (SQLException sqle) {
+            entry.broken = true;
+        }
+        finally {
+            permits.release();
+        }
+        entry.closeQuietly();
+    }
+
+    /**
+     * Evicts connections idle longer than the idle timeout, keeping at least <i>minIdle</i>
+     * around, and reports connections that have been borrowed longer than the leak threshold.
+     */
+    private void housekeep() {
+        final long now = System.currentTimeMillis();
+
+        Iterator<PoolEntry> it = idle.descendingIterator();
+        while (it.hasNext() && idle.size() > minIdle) {
+            PoolEntry entry = it.next();
+            if (now - entry.lastUsed > idleTimeoutMillis && idle.remove(entry))
+                entry.closeQuietly();
+        }
+
+        if (leakThresholdMillis <= 0)
+            return;
+        for (final PoolEntry entry : borrowed) {
+            if (!entry.leakReported && now - entry.borrowedAt > leakThresholdMillis) {
+                entry.leakReported = true;
+                log.log(Level.WARNING, String.format("Possible connection leak: connection held for %d ms", now - entry.borrowedAt),
+                        entry.borrowSite);
+            }
+        }
+    }
+
+    /**
+     * Closes every idle connection and stops the housekeeper.  Borrowed connections are
+     * closed as they are returned.
+     */
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        PoolEntry entry;
+        while ((entry = idle.pollFirst()) != null)
+            entry.closeQuietly();
+    }
+
+    /**
+     * Returns the maximum number of connections this pool will open.
+     *
+     * @return maximum pool size
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Returns the number of connections currently borrowed.
+     *
+     * @return borrowed connection count
+     */
+    public int getActiveCount() {
+        return borrowed.size();
+    }
+
+    /**
+     * Returns the number of open connections waiting in the pool.
+     *
+     * @return idle connection count
+     */
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    /**
+     * Registers SQL whose prepared statements are kept open on each connection and reused.
+     * Meant for fixed SQL run often; SQL built per call is better left uncached.
+     *
+     * @param sql The SQL to cache
+     */
+    public void cacheStatements(Collection<String> sql) {
+        cachedSql.addAll(sql);
+    }
+
+    /**
+     * Returns whether statements prepared from <b>sql</b> are cached.
+     */
+    boolean isCached(String sql) {
+        return cachedSql.contains(sql);
+    }
+
+    /**
+     * Counts a registered statement that was reused from, or had to be added to, a connection's cache.
+     */
+    void countStatement(boolean hit) {
+        (hit ? statementHits : statementMisses).incrementAndGet();
+    }
+
+    /**
+     * Sets the most statements each connection keeps open, for connections opened from now on.
+     * A value of 0 disables statement caching.
+     *
+     * @param statementCacheSize statements per connection
+     */
+    public void setStatementCacheSize(int statementCacheSize) {
+        this.statementCacheSize = statementCacheSize;
+    }
+
+    /**
+     * Returns how many times a registered statement was reused from a connection's cache.
+     *
+     * @return the statement cache hit count
+     */
+    public long getStatementCacheHits() {
+        return statementHits.get();
+    }
+
+    /**
+     * Returns how many times a registered statement had to be prepared.
+     *
+     * @return the statement cache miss count
+     */
+    public long getStatementCacheMisses() {
+        return statementMisses.get();
+    }
+
+    /**
+     * Returns the statement cache's hit and miss counts, and how many statements are held open.
+     *
+     * @return a summary of the statement cache counters
+     */
+    public String getStatementCacheStats() {
+        int open = 0;
+        for (final PoolEntry entry : idle)
+            open += entry.statements.size();
+        for (final PoolEntry entry : borrowed)
+            open += entry.statements.size();
+        return String.format("%d hits, %d misses, %d statements open", getStatementCacheHits(), getStatementCacheMisses(), open);
+    }
+
+    /**
+     * Sets how long to wait for a free connection before giving up.
+     *
+     * @param borrowTimeoutMillis timeout in milliseconds
+     */
+    public void setBorrowTimeoutMillis(long borrowTimeoutMillis) {
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+    }
+
+    /**
+     * Sets how long a connection may sit unused before it is closed.
+     *
+     * @param idleTimeoutMillis timeout in milliseconds
+     */
+    public void setIdleTimeoutMillis(long idleTimeoutMillis) {
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    /**
+     * Sets how long a connection may be borrowed before it is reported as a possible leak.
+     * A value of 0 disables leak detection.
+     *
+     * @param leakThresholdMillis threshold in milliseconds
+     */
+    public void setLeakThresholdMillis(long leakThresholdMillis) {
+        this.leakThresholdMillis = leakThresholdMillis;
+    }
+
+    /**
+     * Sets whether the stack trace of each borrow is captured, so a leak report shows where the
+     * connection was borrowed.  Off by default, since it costs an allocation per borrow.
+     *
+     * @param captureBorrowSites true to capture where connections are borrowed
+     */
+    public void setCaptureBorrowSites(boolean captureBorrowSites) {
+        this.captureBorrowSites = captureBorrowSites;
+    }
+
+    /**
+     * Sets the number of idle connections kept open regardless of the idle timeout.
+     *
+     * @param minIdle minimum idle connections
+     */
+    public void setMinIdle(int minIdle) {
+        this.minIdle = minIdle;
+    }
+
+    /**
+     * Sets how many times to try opening a connection before failing.
+     *
+     * @param reconnectAttempts number of attempts
+     */
+    public void setReconnectAttempts(int reconnectAttempts) {
+        this.reconnectAttempts = reconnectAttempts;
+    }
+
+    // DataSource
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Pooled connections use the pool's credentials.");
+    }
+
+    @Override
+    public PrintWriter getLogWriter() {
+        return DriverManager.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+        DriverManager.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) {
+        this.loginTimeout = seconds;
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return loginTimeout;
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this))
+            return iface.cast(this);
+        throw new SQLException("Not a wrapper for " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+
+    /**
+     * A physical connection held by the pool, along with its bookkeeping.
+     */
+    private class PoolEntry {
+        final Connection physical;
+        final StatementCache statements;
+        volatile long    lastUsed = System.currentTimeMillis();
+        volatile long    borrowedAt;
+        volatile boolean leakReported;
+        volatile boolean broken;
+        Exception        borrowSite;
+        int              defaultIsolation = -1; // isolation level before a borrower first changed it
+
+        PoolEntry(Connection physical) {
+            this.physical = physical;
+            this.statements = new StatementCache(ConnectionPool.this, physical, statementCacheSize);
+        }
+
+        /**
+         * Creates the handle given to a borrower.  The handle forwards every call to the
+         * physical connection, except <i>close()</i> which returns it to the pool.
+         */
+        Connection newHandle() {
+            InvocationHandler handler = new InvocationHandler() {
+                private boolean returned;
+
+                @Override
+                public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                    switch (method.getName()) {
+                        case "close":
+                            if (!returned) {
+                                returned = true;
+                                release(PoolEntry.this);
+                            }
+                            return null;
+                        case "isClosed":
+                            return returned || physical.isClosed();
+                        case "toString":
+                            return "Pooled " + physical;
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                    }
+                    if (returned)
+                        throw new SQLException("Connection has already been returned to the pool.", "08003");
+                    if (defaultIsolation < 0 && method.getName().equals("setTransactionIsolation"))
+                        defaultIsolation = physical.getTransactionIsolation();
+                    try {
+                        if (method.getName().equals("prepareStatement"))
+                            return statements.prepare((Connection) proxy, method, args);
+                        return method.invoke(physical, args);
+                    }
+                    catch (InvocationTargetException ite) {
+                        throw checkBroken(ite.getCause());
+                    }
+                    catch (SQLException sqle) {
+                        throw checkBroken(sqle);
+                    }
+                }
+            };
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[] { Connection.class }, handler);
+        }
+
+        /**
+         * Marks the connection broken if <b>error</b> is a connection-level failure.
+         */
+        private Throwable checkBroken(Throwable error) {
+            if (error instanceof SQLException) {
+                String state = ((SQLException) error).getSQLState();
+                if (state != null && state.startsWith("08"))
+                    broken = true;
+            }
+            return error;
+        }
+
+        void closeQuietly() {
+            statements.close();
+            try {
+                physical.close();
+            }
+            catch (SQLException ignored) {
+            }
+        }
+    }
+}
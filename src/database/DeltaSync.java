@@ -0,0 +1,286 @@
+package database;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import model.*;
+import util.AppointmentIndex;
+import util.ConflictIndex;
+import util.CustomerIndex;
+import util.StartTimeIndex;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Keeps the in-memory Customer and Appointment lists in step with the database
+ * without re-reading whole tables.
+ * <br><br>
+ * The first sync loads everything.  After that, only rows whose <i>Last_Update</i>
+ * is at or after the highest one seen so far are fetched, and merged into the
+ * existing lists in place.  Deleted rows are found by comparing a count/sum/XOR
+ * summary of the table's IDs with the IDs held in memory; the full ID list is only
+ * read when the two disagree.
+ * <br><br>
+ * A sync may run on any thread.  Its queries run on the calling thread, while the shared
+ * lists are only ever changed on the JavaFX Application Thread.
+ *
+ * @author Jonathan Hawranko
+ */
+public abstract class DeltaSync {
+    private static final LocalDateTime FIRST_SYNC = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final ObservableList<Appointment> appointments = FXCollections.observableArrayList();
+    private static final ObservableList<Customer>    customers    = FXCollections.observableArrayList();
+    private static final Map<Integer, Appointment>   apptsById    = new HashMap<>();
+    private static final Map<Integer, Customer>      custsById    = new HashMap<>();
+    private static final ConflictIndex               conflicts    = new ConflictIndex(appointments);
+    private static final StartTimeIndex              startTimes   = new StartTimeIndex(appointments);
+    private static final AppointmentIndex            apptIndex    = new AppointmentIndex(appointments);
+    private static final CustomerIndex               custIndex    = new CustomerIndex(customers);
+    private static LocalDateTime apptWatermark;
+    private static LocalDateTime custWatermark;
+
+    static {
+        appointments.addListener(indexer(apptsById, Appointment::getApptId));
+        customers.addListener(indexer(custsById, Customer::getCustomerId));
+    }
+
+    /**
+     * Returns the shared list of all Appointments.
+     *
+     * @return the synced Appointments
+     */
+    public static ObservableList<Appointment> getAppointments() {
+        return appointments;
+    }
+
+    /**
+     * Returns the scheduling conflict index over the shared list of Appointments.
+     *
+     * @return the conflict index
+     */
+    public static ConflictIndex getConflictIndex() {
+        return conflicts;
+    }
+
+    /**
+     * Returns the start time index over the shared list of Appointments.
+     *
+     * @return the start time index
+     */
+    public static StartTimeIndex getStartTimeIndex() {
+        return startTimes;
+    }
+
+    /**
+     * Returns the attribute index over the shared list of Appointments, for filtering on
+     * several attributes at once.
+     *
+     * @return the appointment index
+     */
+    public static AppointmentIndex getAppointmentIndex() {
+        return apptIndex;
+    }
+
+    /**
+     * Returns the shared list of all Customers.
+     *
+     * @return the synced Customers
+     */
+    public static ObservableList<Customer> getCustomers() {
+        return customers;
+    }
+
+    /**
+     * Returns the Division and Country index over the shared list of Customers.
+     *
+     * @return the customer index
+     */
+    public static CustomerIndex getCustomerIndex() {
+        return custIndex;
+    }
+
+    /**
+     * Brings Customers and Appointments up to date.
+     *
+     * @throws SQLException On SQL syntax error
+     */
+    public static synchronized void sync() throws SQLException {
+        syncCustomers();
+        syncAppointments();
+    }
+
+    /**
+     * Fetches Customers changed since the last sync and merges them into the shared list.
+     *
+     * @throws SQLException On SQL syntax error
+     */
+    public static synchronized void syncCustomers() throws SQLException {
+        final List<Customer> changed;
+        if (custWatermark == null) {
+            changed = JDBC.loadCustomers();
+            if (changed == null)
+                throw new SQLException("No Database Connection");
+            AsyncDB.runOnFxThread(() -> customers.setAll(changed));
+            custWatermark = FIRST_SYNC;
+        }
+        else {
+            changed = JDBC.loadCustomersUpdatedSince(custWatermark);
+            AsyncDB.runOnFxThread(() -> merge(customers, custsById, changed, Customer::getCustomerId));
+            removeDeleted(customers, custsById.keySet(), "customers", "Customer_ID", Customer::getCustomerId);
+        }
+
+        for (final Customer C : changed)
+            if (C.getLastUpdate().isAfter(custWatermark))
+                custWatermark = C.getLastUpdate();
+    }
+
+    /**
+     * Fetches Appointments changed since the last sync and merges them into the shared list.
+     *
+     * @throws SQLException On SQL syntax error
+     */
+    public static synchronized void syncAppointments() throws SQLException {
+        final List<Appointment> changed;
+        if (apptWatermark == null) {
+            final AppointmentColumns loaded = JDBC.loadAppointmentColumns();
+            if (loaded == null)
+                throw new SQLException("No Database Connection");
+            AsyncDB.runOnFxThread(() -> appointments.setAll(loaded.views()));
+            apptWatermark = loaded.size() == 0 ? FIRST_SYNC : loaded.getLatestUpdate();
+            return;
+        }
+        else {
+            changed = JDBC.loadAppointmentsUpdatedSince(apptWatermark);
+            AsyncDB.runOnFxThread(() -> merge(appointments, apptsById, changed, Appointment::getApptId));
+            removeDeleted(appointments, apptsById.keySet(), "appointments", "Appointment_ID", Appointment::getApptId);
+        }
+
+        for (final Appointment A : changed)
+            if (A.getLastUpdate().isAfter(apptWatermark))
+                apptWatermark = A.getLastUpdate();
+    }
+
+    /**
+     * Puts an Appointment that was just saved into the shared list, replacing the row with
+     * the same ID or appending it.  Watermarks are left alone, so rows other users changed in
+     * the meantime are still fetched by the next sync, which leaves this one untouched as long
+     * as its <i>Last_Update</i> matches the database.
+     *
+     * @param appt The saved Appointment
+     */
+    public static void putAppointment(Appointment appt) {
+        AsyncDB.runOnFxThread(() -> put(appointments, apptsById, appt, Appointment::getApptId));
+    }
+
+    /**
+     * Puts a Customer that was just saved into the shared list, replacing the row with the
+     * same ID or appending it.
+     *
+     * @see #putAppointment(Appointment)
+     * @param customer The saved Customer
+     */
+    public static void putCustomer(Customer customer) {
+        AsyncDB.runOnFxThread(() -> put(customers, custsById, customer, Customer::getCustomerId));
+    }
+
+    /**
+     * Removes deleted Customers and all of their Appointments from the shared lists.  Each
+     * Customer's Appointments are found through the conflict index, and each list is changed
+     * in a single pass, however many Customers are removed.
+     *
+     * @param deleted The deleted Customers
+     */
+    public static void removeCustomers(Collection<Customer> deleted) {
+        AsyncDB.runOnFxThread(() -> {
+            final Set<Customer> custs = Collections.newSetFromMap(new IdentityHashMap<>());
+            final Set<Appointment> appts = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (final Customer C : deleted) {
+                final Customer held = custsById.get(C.getCustomerId());
+                if (held != null)
+                    custs.add(held);
+                appts.addAll(conflicts.getCustomerAppointments(C.getCustomerId()));
+            }
+            if (!appts.isEmpty())
+                appointments.removeAll(appts);
+            if (!custs.isEmpty())
+                customers.removeAll(custs);
+        });
+    }
+
+    /**
+     * Replaces rows that are already in memory and appends new ones.  Every row fetched is
+     * replaced, even if its <i>Last_Update</i> has not moved, since <i>Last_Update</i> only
+     * has one-second resolution and a second edit within the same second would otherwise be missed.
+     */
+    private static <T> void merge(ObservableList<T> list, Map<Integer, T> byId, List<T> changed, Function<T, Integer> idOf) {
+        if (changed.isEmpty())
+            return;
+
+        final Map<Integer, T> replacements = new HashMap<>();
+        final List<T> added = new ArrayList<>();
+        for (final T row : changed) {
+            final T existing = byId.get(idOf.apply(row));
+            if (existing == null)
+                added.add(row);
+            else
+                replacements.put(idOf.apply(row), row);
+        }
+
+        if (!replacements.isEmpty()) {
+            for (int i = 0; i < list.size(); i++) {
+                final T replacement = replacements.get(idOf.apply(list.get(i)));
+                if (replacement != null)
+                    list.set(i, replacement);
+            }
+        }
+        list.addAll(added);
+    }
+
+    private static <T> void put(ObservableList<T> list, Map<Integer, T> byId, T row, Function<T, Integer> idOf) {
+        final T existing = byId.get(idOf.apply(row));
+        final int index = existing == null ? -1 : list.indexOf(existing);
+        if (index < 0)
+            list.add(row);
+        else
+            list.set(index, row);
+    }
+
+    /**
+     * Removes rows that no longer exist in the database.  The full ID list is only read
+     * when the table's ID summary does not match the IDs held in memory.
+     */
+    private static <T> void removeDeleted(ObservableList<T> list, Set<Integer> known, String table, String idColumn,
+                                          Function<T, Integer> idOf) throws SQLException {
+        final long[] remote = JDBC.loadIdChecksum(table, idColumn);
+        final long[] local = AsyncDB.callOnFxThread(() -> {
+            long sum = 0, xor = 0;
+            for (final int id : known) {
+                sum += id;
+                xor ^= id;
+            }
+            return new long[] { known.size(), sum, xor };
+        });
+        if (Arrays.equals(remote, local))
+            return;
+
+        final Set<Integer> live = JDBC.loadIds(table, idColumn);
+        AsyncDB.runOnFxThread(() -> list.removeIf(row -> !live.contains(idOf.apply(row))));
+    }
+
+    /**
+     * Creates a listener that keeps an ID map in step with a list, however the list is modified.
+     */
+    private static <T> ListChangeListener<T> indexer(Map<Integer, T> byId, Function<T, Integer> idOf) {
+        return change -> {
+            while (change.next()) {
+                for (final T removed : change.getRemoved())
+                    byId.remove(idOf.apply(removed), removed);
+                for (final T added : change.getAddedSubList())
+                    byId.put(idOf.apply(added), added);
+            }
+        };
+    }
+}
@@ -1,19 +1,29 @@
 package database;
 
+import exceptions.SchedulingException;
 import javafx.scene.control.Alert;
 import model.*;
 import util.Dialogs;
+import util.StringDictionary;
 import util.Time;
 
 import java.sql.*;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.function.ObjIntConsumer;
 
 /**
  * Contains methods for accessing the database.
  * The JDBC class contains methods for database operations such as
- * opening and closing a connection, querying, and specific results.
+ * opening and closing the connection pool, querying, and specific results.
+ * Each operation borrows its own connection from the pool, so independent
+ * operations can run at the same time.
  *
  * @author Jonathan Hawranko
  */
@@ -22,20 +32,116 @@ public abstract class JDBC {
     private static final String vendor = ":mysql:";
     private static final String location = "//localhost/";
     private static final String databaseName = "client_schedule";
-    private static final String jdbcUrl = protocol + vendor + location + databaseName + "?connectionTimeZone=SERVER"; // LOCAL
+    private static final String jdbcUrl = protocol + vendor + location + databaseName + "?connectionTimeZone=SERVER&useCursorFetch=true&rewriteBatchedStatements=true"; // LOCAL
     private static final String driver = "com.mysql.cj.jdbc.Driver"; // Driver reference
     private static final String userName = "sqlUser"; // Username
     private static String password = "Passw0rd!"; // Password
-    public static Connection connection;  // Connection Interface
+    private static final int poolSize = 8; // Maximum open connections
+    private static ConnectionPool pool;  // Connection Pool
+    private static int streamFetchSize = 500; // Rows per cursor fetch when streaming
+    private static final int bookingAttempts = 3; // Tries per booking when chosen as a deadlock victim
+    private static final int batchSize = 500; // Rows per batch, each committed on its own
+    private static final int dictionarySize = 4096; // Most distinct values interned per column
+
+    // Columns with few distinct values, interned as rows are read so they share one String per value
+    private static final StringDictionary apptTypes     = new StringDictionary(dictionarySize);
+    private static final StringDictionary apptLocations = new StringDictionary(dictionarySize);
+    private static final StringDictionary contactNames  = new StringDictionary(dictionarySize);
+    private static final StringDictionary apptCreatedBy = new StringDictionary(dictionarySize);
+    private static final StringDictionary apptUpdatedBy = new StringDictionary(dictionarySize);
+    private static final StringDictionary custCreatedBy = new StringDictionary(dictionarySize);
+    private static final StringDictionary custUpdatedBy = new StringDictionary(dictionarySize);
+
+    // Fixed SQL, whose prepared statements each pooled connection keeps open and reuses
+    private static final Set<String> cachedStatements = new HashSet<>();
+
+    // Projections read by position by the row mappers; times are read by readTime()
+    private static final String customerColumns = "Customer_ID, Customer_Name, Address, Postal_Code, Phone, "
+            +"Create_Date, Created_By, Last_Update, Last_Updated_By, Division_ID";
+    private static final String selectCustomers = cached("SELECT " + customerColumns + " FROM customers");
+    private static final String selectCustomersSince = cached(selectCustomers + " WHERE Last_Update >= ?");
+    private static final String selectCustomersPage = cached(selectCustomers + " WHERE Customer_ID > ? ORDER BY Customer_ID LIMIT ?");
+    private static final String selectCountries = cached("SELECT Country_ID, Country, Create_Date, Created_By, "
+            +"Last_Update, Last_Updated_By FROM countries");
+    private static final String selectDivisions = cached("SELECT Division_ID, Division, Create_Date, Created_By, "
+            +"Last_Update, Last_Updated_By, Country_ID FROM first_level_divisions");
+    private static final String selectContacts = cached("SELECT Contact_ID, Contact_Name, Email FROM contacts");
+    private static final String appointmentsWithContact = cached("SELECT appointments.Appointment_ID, Title, Description, Location, Type, "
+            +"Start, End, "
+            +"appointments.Create_Date, appointments.Created_By, "
+            +"appointments.Last_Update, appointments.Last_Updated_By, "
+            +"Customer_ID, User_ID, appointments.Contact_ID, Contact_Name FROM appointments "
+            +"LEFT JOIN contacts ON appointments.Contact_ID = contacts.Contact_ID");
+    private static final String selectAppointmentsSince = cached(appointmentsWithContact + " WHERE appointments.Last_Update >= ?");
+    private static final String selectAppointmentsPage = cached(appointmentsWithContact
+            +" WHERE appointments.Appointment_ID > ? ORDER BY appointments.Appointment_ID LIMIT ?");
+    private static final String appointmentSummaries = cached("SELECT appointments.Appointment_ID, Title, Location, Type, "
+            +"Start, End, appointments.Last_Update, "
+            +"Customer_ID, User_ID, appointments.Contact_ID, Contact_Name FROM appointments "
+            +"LEFT JOIN contacts ON appointments.Contact_ID = contacts.Contact_ID");
+
+    // Create_Date and Last_Update are bound to the server's NOW(), read beforehand, so the saved
+    // objects can be stamped with exactly the values stored
+    private static final String newCustomer = cached("INSERT INTO customers "
+            +"(Customer_Name, Address, Postal_Code, Phone, Create_Date, Created_By, Last_Update, Last_Updated_By, Division_ID) "
+            +"VALUES (?,?,?,?,?,?,?,?,?)");
+    private static final String editCustomer = cached("UPDATE customers "
+            +"SET Customer_Name = ?, Address = ?, Postal_Code = ?, Phone = ?, Last_Update = ?, Last_Updated_By = ?, Division_ID = ? "
+            +"WHERE Customer_ID = ?");
+    private static final String newAppointment = cached("INSERT INTO appointments "
+            +"(Title, Description, Location, Type, Start, End, "
+            +"Create_Date, Created_By, Last_Update, Last_Updated_By, "
+            +"Customer_ID, User_ID, Contact_ID) "
+            +"VALUES (?,?,?,?,?,?,?,?,?,?,?,?,?)");
+    private static final String editAppointment = cached("UPDATE appointments "
+            +"SET Title = ?, Description = ?, Location = ?, Type = ?, Start = ?, End = ?, Last_Update = ?, Last_Updated_By = ?, Customer_ID = ?, User_ID = ?, Contact_ID = ? "
+            +"WHERE Appointment_ID = ?");
+    private static final String deleteAppointment = cached("DELETE FROM appointments WHERE Appointment_ID=?");
+    private static final String selectNow = cached("SELECT NOW()");
+
+    // Booking locks each party's row, and checks each party for overlaps with its own EXISTS subquery
+    private static final String lockCustomer = cached("SELECT Customer_ID, NOW() FROM customers WHERE Customer_ID=? FOR UPDATE");
+    private static final String lockContact = cached("SELECT Contact_ID, NOW() FROM contacts WHERE Contact_ID=? FOR UPDATE");
+    private static final String lockUser = cached("SELECT User_ID, NOW() FROM users WHERE User_ID=? FOR UPDATE");
+    private static final String overlaps = "SELECT 1 FROM appointments WHERE %s=? AND Appointment_ID<>? AND Start<? AND End>?";
+    private static final String findConflicts = cached("SELECT EXISTS(" + String.format(overlaps, "Customer_ID") + "), "
+            +"EXISTS(" + String.format(overlaps, "Contact_ID") + "), "
+            +"EXISTS(" + String.format(overlaps, "User_ID") + ")");
+
+    // reports
+    private static final String apptReport = cached("SELECT COUNT(*) AS Count, Type, MONTHNAME(Start) AS Month FROM appointments GROUP BY Type, Month");
+    private static final String contactsReport = cached("SELECT contacts.Contact_ID, Contact_Name, Appointment_ID, Title, Type, Description, "
+            +"Start, End, Customer_ID FROM appointments "
+            +"RIGHT JOIN contacts ON contacts.Contact_ID = appointments.Contact_ID "
+            +"ORDER BY Contact_Name, Start");
+    private static final String userReport = cached("SELECT users.User_ID AS UserID, User_Name AS UserName, users.Create_Date, users.Created_By, "
+            +"Appointment_ID AS ApptID, appointments.Create_Date AS Created, "
+            +"appointments.Last_Update AS Updated, Customer_ID AS CustID, Contact_ID AS ContID FROM users "
+            +"RIGHT JOIN appointments ON appointments.User_ID = users.User_ID "
+            +"ORDER BY UserID, Updated");
 
     /**
-     * Opens a connection to the database.
+     * Registers fixed SQL to be kept prepared on each connection.
+     *
+     * @param sql The SQL
+     * @return <b>sql</b>
+     */
+    private static String cached(String sql) {
+        cachedStatements.add(sql);
+        return sql;
+    }
+
+    /**
+     * Opens the connection pool to the database.  One connection is opened
+     * up front to verify the database can be reached.
      */
     public static void openConnection()
     {
         try {
             Class.forName(driver); // Locate Driver
-            connection = DriverManager.getConnection(jdbcUrl, userName, password); // Reference Connection object
+            pool = new ConnectionPool(jdbcUrl, userName, password, poolSize);
+            pool.cacheStatements(cachedStatements);
+            pool.getConnection().close(); // Verify connectivity, leaving the connection idle in the pool
         }
         catch(Exception e)
         {
@@ -47,11 +153,11 @@ public abstract class JDBC {
     }
 
     /**
-     * Closes the open connection to the database.
+     * Closes every connection in the pool.
      */
     public static void closeConnection() {
         try {
-            connection.close();
+            pool.close();
         }
         catch(Exception e)
         {
@@ -59,64 +165,164 @@ public abstract class JDBC {
         }
     }
 
+    /**
+     * Borrows a connection from the pool.  The connection is returned to the
+     * pool when it is closed, so callers should use it in a <i>try-with-resources</i> block.
+     *
+     * @return a pooled <b>Connection</b>
+     * @throws SQLException if no connection can be obtained
+     */
+    public static Connection getConnection() throws SQLException {
+        if (pool == null)
+            throw new SQLException("No Database Connection", "08003");
+        return pool.getConnection();
+    }
+
+    /**
+     * Returns the statement cache's hit and miss counts, across every pooled connection.
+     *
+     * @return a summary of the statement cache counters
+     */
+    public static String getStatementCacheStats() {
+        return pool == null ? "No Database Connection" : pool.getStatementCacheStats();
+    }
+
+    /**
+     * Returns the pool backing all database access.
+     *
+     * @return the connection pool, or null if it has not been opened
+     */
+    public static ConnectionPool getDataSource() {
+        return pool;
+    }
+
+    /**
+     * Returns the most connections the pool will open at once.
+     *
+     * @return the pool size
+     */
+    static int getPoolSize() {
+        return poolSize;
+    }
+
     /**
      * Creates a <b>Statement</b> object, queries the database, and returns the <b>ResultSet</b>.
+     * The statement is closed along with the returned <b>ResultSet</b>.
      *
+     * @param conn The borrowed connection to query on
      * @param query The SQL statement for the desired database query.
      * @return a <b>ResultSet</b> with the results of the query
      * @throws SQLException on SQL syntax error
      */
-    public static ResultSet queryConnection(String query) throws SQLException {
+    public static ResultSet queryConnection(Connection conn, String query) throws SQLException {
+        PreparedStatement S = conn.prepareStatement(query);
         try {
-            PreparedStatement S = connection.prepareStatement(query);
-            ResultSet R = S.executeQuery();
-            return R;
+            S.closeOnCompletion();
+            return S.executeQuery();
         }
-        catch (NullPointerException npe) {
-            Dialogs.alertUser(Alert.AlertType.ERROR, "Error", "No Database Connection", npe.getMessage());
-            return null;
+        catch (SQLException sqle) {
+            S.close();
+            throw sqle;
         }
     }
 
+    /**
+     * Sets how many rows streamed queries fetch per round trip.  The connections are opened with
+     * <i>useCursorFetch</i>, so every streamed query reads through a server-side cursor, and only
+     * that many rows are held in memory at once.
+     *
+     * @see #streamQuery(String, RowHandler, Object...)
+     * @param fetchSize The number of rows fetched per round trip
+     */
+    public static void setStreamFetchSize(int fetchSize) {
+        if (fetchSize <= 0)
+            throw new IllegalArgumentException("Fetch size must be positive");
+        streamFetchSize = fetchSize;
+    }
+
+    /**
+     * Runs a query and hands each row to <b>handler</b> as it arrives, rather than buffering the
+     * whole result in memory first.
+     *
+     * @see #setStreamFetchSize(int)
+     * @param query The SQL statement for the desired database query
+     * @param handler Called once for each row, in order
+     * @param params Values bound to the query's parameters, in order
+     * @throws SQLException On SQL syntax error
+     */
+    public static void streamQuery(String query, RowHandler handler, Object... params) throws SQLException {
+        try (Connection conn = getConnection();
+             PreparedStatement S = conn.prepareStatement(query, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            S.setFetchSize(streamFetchSize);
+            for (int i = 0; i < params.length; i++) {
+                if (params[i] instanceof LocalDateTime)
+                    S.setTimestamp(i + 1, Timestamp.valueOf((LocalDateTime) params[i]));
+                else
+                    S.setObject(i + 1, params[i]);
+            }
+            try (ResultSet R = S.executeQuery()) {
+                while (R.next())
+                    handler.handle(R);
+            }
+        }
+    }
+
+    /**
+     * Runs a query and maps every row it returns, streaming the rows as {@link #streamQuery} does.
+     *
+     * @param query The SQL statement for the desired database query
+     * @param mapper Maps each row, by column position
+     * @param params Values bound to the query's parameters, in order
+     * @param <T> the type of object
+     * @return the mapped rows, in order
+     * @throws SQLException On SQL syntax error
+     */
+    public static <T> List<T> queryList(String query, RowMapper<T> mapper, Object... params) throws SQLException {
+        final List<T> rows = new ArrayList<>();
+        streamQuery(query, R -> rows.add(mapper.map(R)), params);
+        return rows;
+    }
+
+    /**
+     * Reads a time column as the local date-time it falls on, without building a <i>Timestamp</i>
+     * along the way.  The driver reads the column as an instant in the server's time zone, so
+     * any DATETIME is read, including those outside the range of <i>UNIX_TIMESTAMP()</i>.
+     *
+     * @param R The result set, positioned on a row
+     * @param column The column's position
+     * @return the local date-time, or null if the column is null
+     * @throws SQLException On SQL error while reading the column
+     */
+    static LocalDateTime readTime(ResultSet R, int column) throws SQLException {
+        final OffsetDateTime time = R.getObject(column, OffsetDateTime.class);
+        return time == null ? null : LocalDateTime.ofInstant(time.toInstant(), ZoneId.systemDefault());
+    }
+
+    /**
+     * Reads a time column as seconds since the epoch, as {@link #readTime} reads it.
+     *
+     * @param R The result set, positioned on a row
+     * @param column The column's position
+     * @return the seconds since the epoch, or 0 if the column is null
+     * @throws SQLException On SQL error while reading the column
+     */
+    static long readEpochSecond(ResultSet R, int column) throws SQLException {
+        final OffsetDateTime time = R.getObject(column, OffsetDateTime.class);
+        return time == null ? 0 : time.toEpochSecond();
+    }
+
     /**
      * Loads all Customers from the database.
      * <br><br>
-     * A lambda function is used to filter the list of <i>Divisions</i>
-     * by the currently loaded Customer's Division.  The filtered result
-     * is stored in a <i>Collector</i>, and used to assign the <i>division</i>
-     * field on the <i>Customer</i>.<br>
+     * Each Customer's <i>division</i> is resolved by ID through {@link ReferenceData}.
      *
-     * @param divisions A list of all <b>Division</b>s
      * @return A List of <b>Customer</b> objects
      */
-    public static List<Customer> loadCustomers(List<Division> divisions) {
-        final List<Customer> customers = new ArrayList<>();
-
-        try(ResultSet R = JDBC.queryConnection("SELECT * FROM customers "
-                +"LEFT JOIN first_level_divisions ON customers.Division_ID = first_level_divisions.Division_ID")) {
-            while (R.next()) {
-                Customer C = new Customer(R.getInt("Customer_ID"));
-                C.setName(R.getString("Customer_Name"));
-                C.setAddress(R.getString("Address"));
-                C.setPostalCode(R.getString("Postal_Code"));
-                C.setPhone(R.getString("Phone"));
-
-                Timestamp created = R.getTimestamp("Create_Date");
-                C.setCreateDate(created.toLocalDateTime());
-                C.setCreatedBy(R.getString("Created_By"));
-
-                Timestamp updated = R.getTimestamp("Last_Update");
-                C.setLastUpdate(updated.toLocalDateTime());
-                C.setLastUpdatedBy(R.getString("Last_Updated_By"));
-
-                final String divName = R.getString("Division");
-                Division D = divisions.stream()
-                        .filter(div -> div.getDivision().equals(divName))
-                        .collect(Collectors.toList()).get(0);
-                C.setDivision(D);
-
-                customers.add(C);
-            }
+    public static List<Customer> loadCustomers() {
+        List<Customer> customers = new ArrayList<>();
+
+        try {
+            customers = queryList(selectCustomers, JDBC::readCustomer);
         }
         catch (SQLException sqle) {
             Dialogs.alertUser(Alert.AlertType.ERROR, "SQL Error", "SQL Error", sqle.getMessage());
@@ -130,142 +336,264 @@ public abstract class JDBC {
     }
 
     /**
-     * Adds a new Customer to the database.
+     * Loads the Customers created or updated at or after a point in time.
+     *
+     * @param since Only customers with a <i>Last_Update</i> at or after this time are loaded
+     * @return A List of <b>Customer</b> objects
+     * @throws SQLException On SQL syntax error
+     */
+    public static List<Customer> loadCustomersUpdatedSince(LocalDateTime since) throws SQLException {
+        return queryList(selectCustomersSince, JDBC::readCustomer, since);
+    }
+
+    /**
+     * Loads one page of Customers, ordered by Customer ID.
+     *
+     * @param afterId Only customers with a greater ID are loaded; 0 for the first page
+     * @param limit The maximum number of customers to load
+     * @return A List of <b>Customer</b> objects
+     * @throws SQLException On SQL syntax error
+     */
+    public static List<Customer> loadCustomersPage(int afterId, int limit) throws SQLException {
+        return queryList(selectCustomersPage, JDBC::readCustomer, afterId, limit);
+    }
+
+    /**
+     * Maps a row of {@link #customerColumns}.
+     */
+    private static Customer readCustomer(ResultSet R) throws SQLException {
+        Customer C = new Customer(R.getInt(1));
+        C.setName(R.getString(2));
+        C.setAddress(R.getString(3));
+        C.setPostalCode(R.getString(4));
+        C.setPhone(R.getString(5));
+
+        C.setCreateDate(readTime(R, 6));
+        C.setCreatedBy(custCreatedBy.intern(R.getString(7)));
+
+        C.setLastUpdate(readTime(R, 8));
+        C.setLastUpdatedBy(custUpdatedBy.intern(R.getString(9)));
+
+        C.setDivision(ReferenceData.getDivision(R.getInt(10)));
+
+        return C;
+    }
+
+    /**
+     * Adds a new Customer to the database.  The Customer is given its generated ID, and
+     * its creation and update times and users are set to the values stored.
      *
      * @param user The User creating the new Customer
      * @param customer The new Customer
+     * @return the new Customer's ID
      * @throws SQLException on SQL syntax error
      */
-    public static void insertCustomer(User user, Customer customer) throws SQLException {
-        final String newCustomer = "INSERT INTO customers "
-                +"(Customer_Name, Address, Postal_Code, Phone, Create_Date, Created_By, Last_Update, Last_Updated_By, Division_ID) "
-                +"VALUES (?,?,?,?,NOW(),?,NOW(),?,?)";
-        try (PreparedStatement insert = connection.prepareStatement(newCustomer)) {
-            insert.setString(1, customer.getName());
-            insert.setString(2, customer.getAddress());
-            insert.setString(3, customer.getPostalCode());
-            insert.setString(4, customer.getPhone());
-            insert.setString(5, user.getUserName());
-            insert.setString(6, user.getUserName());
-            insert.setInt(7, customer.getDivision().getDivisionId());
-
-            insert.executeUpdate();
-        }
-        catch (NullPointerException npe) {
-            Dialogs.alertUser(Alert.AlertType.ERROR, "Error", "No Database Connection", npe.getMessage());
-        }
+    public static int insertCustomer(User user, Customer customer) throws SQLException {
+        insertCustomers(user, List.of(customer)).throwIfFailed();
+        return customer.getCustomerId();
     }
 
     /**
-     * Updates a customer in the database.
+     * Updates a customer in the database.  The Customer's update time and user are
+     * set to the values stored.
      *
      * @param user The User updating the Customer
      * @param customer The Customer to update
      * @throws SQLException on SQL syntax error
      */
     public static void updateCustomer(User user, Customer customer) throws SQLException {
-        final String editCustomer = "UPDATE customers "
-                +"SET Customer_Name = ?, Address = ?, Postal_Code = ?, Phone = ?, Last_Update = NOW(), Last_Updated_By = ?, Division_ID = ? "
-                +"WHERE Customer_ID = ?";
-        try (PreparedStatement update = connection.prepareStatement(editCustomer)) {
-            update.setString(1, customer.getName());
-            update.setString(2, customer.getAddress());
-            update.setString(3, customer.getPostalCode());
-            update.setString(4, customer.getPhone());
-            update.setString(5, user.getUserName());
-            update.setInt(6, customer.getDivision().getDivisionId());
-            update.setInt(7, customer.getCustomerId());
+        updateCustomers(user, List.of(customer)).throwIfFailed();
+    }
 
-            update.executeUpdate();
+    /**
+     * Adds new Customers to the database in batches.  Each Customer saved is given its
+     * generated ID, and its creation and update times and users are set to the values stored.
+     *
+     * @see #executeBatch(Connection, String, List, int, RowBinder, ObjIntConsumer)
+     * @param user The User creating the new Customers
+     * @param customers The new Customers
+     * @return which Customers were saved, and why any were not
+     * @throws SQLException if the database cannot be reached
+     */
+    public static BatchResult insertCustomers(User user, List<Customer> customers) throws SQLException {
+        try (Connection conn = getConnection()) {
+            final LocalDateTime now = serverNow(conn);
+            return executeBatch(conn, newCustomer, customers, Statement.RETURN_GENERATED_KEYS, (insert, customer) -> {
+                insert.setString(1, customer.getName());
+                insert.setString(2, customer.getAddress());
+                insert.setString(3, customer.getPostalCode());
+                insert.setString(4, customer.getPhone());
+                insert.setTimestamp(5, Timestamp.valueOf(now));
+                insert.setString(6, user.getUserName());
+                insert.setTimestamp(7, Timestamp.valueOf(now));
+                insert.setString(8, user.getUserName());
+                insert.setInt(9, customer.getDivision().getDivisionId());
+            }, (customer, customerId) -> {
+                customer.setCustomerId(customerId);
+                customer.setCreateDate(now);
+                customer.setCreatedBy(user.getUserName());
+                customer.setLastUpdate(now);
+                customer.setLastUpdatedBy(user.getUserName());
+            });
         }
-        catch (NullPointerException npe) {
-            Dialogs.alertUser(Alert.AlertType.ERROR, "Error", "No Database Connection", npe.getMessage());
+    }
+
+    /**
+     * Updates Customers in the database in batches.  Each Customer saved has its update
+     * time and user set to the values stored.
+     *
+     * @see #executeBatch(Connection, String, List, int, RowBinder, ObjIntConsumer)
+     * @param user The User updating the Customers
+     * @param customers The Customers to update
+     * @return which Customers were saved, and why any were not
+     * @throws SQLException if the database cannot be reached
+     */
+    public static BatchResult updateCustomers(User user, List<Customer> customers) throws SQLException {
+        try (Connection conn = getConnection()) {
+            final LocalDateTime now = serverNow(conn);
+            return executeBatch(conn, editCustomer, customers, Statement.NO_GENERATED_KEYS, (update, customer) -> {
+                update.setString(1, customer.getName());
+                update.setString(2, customer.getAddress());
+                update.setString(3, customer.getPostalCode());
+                update.setString(4, customer.getPhone());
+                update.setTimestamp(5, Timestamp.valueOf(now));
+                update.setString(6, user.getUserName());
+                update.setInt(7, customer.getDivision().getDivisionId());
+                update.setInt(8, customer.getCustomerId());
+            }, (customer, none) -> {
+                customer.setLastUpdate(now);
+                customer.setLastUpdatedBy(user.getUserName());
+            });
         }
     }
 
     /**
      * Deletes a customer and any associated appointments.
      *
+     * @see #deleteCustomersAndAppointments(Collection)
      * @param customer The Customer to delete
      * @throws SQLException On SQL syntax error
      */
     public static void deleteCustomerAndAppointments(Customer customer) throws SQLException {
-        final String deleteAppointments = "DELETE FROM appointments WHERE Customer_ID=?";
-        try (PreparedStatement delete = connection.prepareStatement(deleteAppointments)) {
-            delete.setInt(1, customer.getCustomerId());
-            delete.executeUpdate();
-        }
+        deleteCustomersAndAppointments(List.of(customer));
+    }
 
-        final String deleteCustomer = "DELETE FROM customers WHERE Customer_ID=?";
-        try (PreparedStatement delete = connection.prepareStatement(deleteCustomer)) {
-            delete.setInt(1, customer.getCustomerId());
-            delete.executeUpdate();
+    /**
+     * Deletes customers and all of their appointments in one transaction, so either every
+     * row goes or none do.  The deletes are sent as a single batch of
+     * <i>Customer_ID IN (...)</i> statements, which the driver sends in one round trip.
+     *
+     * @param customers The Customers to delete
+     * @throws SQLException On SQL syntax error; nothing is deleted
+     */
+    public static void deleteCustomersAndAppointments(Collection<Customer> customers) throws SQLException {
+        if (customers.isEmpty())
+            return;
+
+        final List<Integer> ids = new ArrayList<>(customers.size());
+        for (final Customer C : customers)
+            ids.add(C.getCustomerId());
+
+        try (Connection conn = getConnection();
+             Statement delete = conn.createStatement()) {
+            conn.setAutoCommit(false);
+            try {
+                // appointments first, as they reference their customer
+                for (int from = 0; from < ids.size(); from += batchSize) {
+                    final String idList = joinIds(ids.subList(from, Math.min(ids.size(), from + batchSize)));
+                    delete.addBatch("DELETE FROM appointments WHERE Customer_ID IN (" + idList + ")");
+                    delete.addBatch("DELETE FROM customers WHERE Customer_ID IN (" + idList + ")");
+                }
+                delete.executeBatch();
+                conn.commit();
+            }
+            catch (SQLException sqle) {
+                conn.rollback();
+                throw sqle;
+            }
         }
-        catch (NullPointerException npe) {
-            Dialogs.alertUser(Alert.AlertType.ERROR, "Error", "No Database Connection", npe.getMessage());
+    }
+
+    private static String joinIds(List<Integer> ids) {
+        final StringBuilder joined = new StringBuilder();
+        for (final int id : ids) {
+            if (joined.length() > 0)
+                joined.append(',');
+            joined.append(id);
         }
+        return joined.toString();
     }
 
     /**
      * Loads all Countries from the database.
      *
      * @return A List of <b>Country</b> objects
+     * @throws SQLException On SQL error, or if there is no database connection
      */
-    public static List<Country> loadCountries() {
-        List<Country> countries = new ArrayList<>();
+    public static List<Country> loadCountries() throws SQLException {
+        return queryList(selectCountries, R -> {
+            Country C = new Country(R.getInt(1));
+            C.setCountry(R.getString(2));
 
-        try(ResultSet R = JDBC.queryConnection("SELECT * FROM countries")) {
-            while (R.next()) {
-                Country C = new Country(R.getInt("Country_ID"));
-                C.setCountry(R.getString("Country"));
+            C.setCreateDate(readTime(R, 3));
+            C.setCreatedBy(R.getString(4));
 
-                Timestamp created = R.getTimestamp("Create_Date");
-                C.setCreateDate(created.toLocalDateTime());
-                C.setCreatedBy(R.getString("Created_By"));
+            C.setLastUpdate(readTime(R, 5));
+            C.setLastUpdatedBy(R.getString(6));
 
-                Timestamp updated = R.getTimestamp("Last_Update");
-                C.setLastUpdate(updated.toLocalDateTime());
-                C.setLastUpdatedBy(R.getString("Last_Updated_By"));
-
-                countries.add(C);
-            }
-        }
-        catch (SQLException sqle) {
-            Dialogs.alertUser(Alert.AlertType.ERROR, "SQL Error", "SQL Error", sqle.getMessage());
-        }
-        catch (NullPointerException npe) {
-            Dialogs.alertUser(Alert.AlertType.ERROR, "Error", "No Database Connection", npe.getMessage());
-            return null;
-        }
-
-        return countries;
+            return C;
+        });
     }
 
     /**
      * Loads all Divisions from the database.
      *
      * @return A List of <b>Division</b> objects
+     * @throws SQLException On SQL error, or if there is no database connection
      */
-    public static List<Division> loadDivisions() {
-        List<Division> divisions = new ArrayList<>();
+    public static List<Division> loadDivisions() throws SQLException {
+        return queryList(selectDivisions, R -> {
+            Division D = new Division(R.getInt(1));
+            D.setDivision(R.getString(2));
 
-        try(ResultSet R = JDBC.queryConnection("SELECT * FROM first_level_divisions")) {
-            while (R.next()) {
-                Division D = new Division(R.getInt("Division_ID"));
-                D.setDivision(R.getString("Division"));
+            D.setCreateDate(readTime(R, 3));
+            D.setCreatedBy(R.getString(4));
 
-                Timestamp created = R.getTimestamp("Create_Date");
-                D.setCreateDate(created.toLocalDateTime());
-                D.setCreatedBy(R.getString("Created_By"));
+            D.setLastUpdate(readTime(R, 5));
+            D.setLastUpdatedBy(R.getString(6));
 
-                Timestamp updated = R.getTimestamp("Last_Update");
-                D.setLastUpdate(updated.toLocalDateTime());
-                D.setLastUpdatedBy(R.getString("Last_Updated_By"));
+            D.setCountryId(R.getInt(7));
 
-                D.setCountryId(R.getInt("Country_ID"));
+            return D;
+        });
+    }
 
-                divisions.add(D);
-            }
+    /**
+     * Loads all Contacts from the database.
+     *
+     * @return A List of <b>Contact</b> objects
+     * @throws SQLException On SQL error, or if there is no database connection
+     */
+    public static List<Contact> loadContacts() throws SQLException {
+        return queryList(selectContacts, R -> {
+            Contact C = new Contact(R.getInt(1));
+            C.setName(R.getString(2));
+            C.setEmail(R.getString(3));
+
+            return C;
+        });
+    }
+
+    /**
+     * Loads all Appointments from the database.
+     *
+     * @return A List of <b>Appointment</b> objects
+     */
+    public static List<Appointment> loadAppointments() {
+        List<Appointment> appointments = new ArrayList<>();
+
+        try {
+            appointments = queryList(appointmentsWithContact, JDBC::readAppointment);
         }
         catch (SQLException sqle) {
             Dialogs.alertUser(Alert.AlertType.ERROR, "SQL Error", "SQL Error", sqle.getMessage());
@@ -275,25 +603,27 @@ public abstract class JDBC {
             return null;
         }
 
-        return divisions;
+        return appointments;
     }
 
     /**
-     * Loads all Contacts from the database.
+     * Loads all Appointments from the database into an {@link AppointmentColumns} store.
+     * <br><br>
+     * Only the columns shown in the main grid are read.  Each Appointment's Description and
+     * audit fields are left for {@link AppointmentDetails} to load when they are first needed.
+     * Times are selected as seconds since the epoch, so rows are read with <i>getLong</i> and no
+     * <i>Timestamp</i> or <i>LocalDateTime</i> is built while loading.
      *
-     * @return A List of <b>Contact</b> objects
+     * @return The loaded Appointments
      */
-    public static List<Contact> loadContacts() {
-        List<Contact> contacts = new ArrayList<>();
+    public static AppointmentColumns loadAppointmentColumns() {
+        final AppointmentColumns appointments = new AppointmentColumns(1024);
 
-        try(ResultSet R = JDBC.queryConnection("SELECT * FROM contacts")) {
-            while (R.next()) {
-                Contact C = new Contact(R.getInt("Contact_ID"));
-                C.setName(R.getString("Contact_Name"));
-                C.setEmail(R.getString("Email"));
-
-                contacts.add(C);
-            }
+        try {
+            streamQuery(appointmentSummaries,
+                    R -> appointments.add(R.getInt(1), R.getString(2), R.getString(3), R.getString(4),
+                            readEpochSecond(R, 5), readEpochSecond(R, 6), readEpochSecond(R, 7),
+                            R.getInt(8), R.getInt(9), R.getInt(10), R.getString(11)));
         }
         catch (SQLException sqle) {
             Dialogs.alertUser(Alert.AlertType.ERROR, "SQL Error", "SQL Error", sqle.getMessage());
@@ -303,123 +633,500 @@ public abstract class JDBC {
             return null;
         }
 
-        return contacts;
+        return appointments;
     }
 
     /**
-     * Loads all Appointments from the database.
+     * Loads the Description and audit fields of some Appointments, in batches.
      *
+     * @see AppointmentDetails
+     * @param ids The IDs of the Appointments
+     * @return An Appointment for each ID found, holding only its ID, Description, and audit fields
+     * @throws SQLException On SQL syntax error
+     */
+    public static List<Appointment> loadAppointmentDetails(List<Integer> ids) throws SQLException {
+        final List<Appointment> details = new ArrayList<>(ids.size());
+        for (int from = 0; from < ids.size(); from += batchSize) {
+            details.addAll(queryList("SELECT Appointment_ID, Description, Create_Date, Created_By, Last_Updated_By "
+                    +"FROM appointments WHERE Appointment_ID IN (" + joinIds(ids.subList(from, Math.min(ids.size(), from + batchSize))) + ")", R -> {
+                Appointment A = new Appointment(R.getInt(1));
+                A.setDesc(R.getString(2));
+                A.setCreateDate(readTime(R, 3));
+                A.setCreatedBy(apptCreatedBy.intern(R.getString(4)));
+                A.setLastUpdatedBy(apptUpdatedBy.intern(R.getString(5)));
+
+                return A;
+            }));
+        }
+        return details;
+    }
+
+    /**
+     * Loads the Appointments created or updated at or after a point in time.
+     *
+     * @param since Only appointments with a <i>Last_Update</i> at or after this time are loaded
      * @return A List of <b>Appointment</b> objects
+     * @throws SQLException On SQL syntax error
      */
-    public static List<Appointment> loadAppointments() {
-        List<Appointment> appointments = new ArrayList<>();
+    public static List<Appointment> loadAppointmentsUpdatedSince(LocalDateTime since) throws SQLException {
+        return queryList(selectAppointmentsSince, JDBC::readAppointment, since);
+    }
+
+    /**
+     * Loads the Appointments starting within a range of time.
+     *
+     * @see #loadAppointmentsBetween(LocalDateTime, LocalDateTime, int, int, int)
+     * @param from The earliest start time, inclusive
+     * @param to The latest start time, exclusive
+     * @return A List of <b>Appointment</b> objects, ordered by start time
+     * @throws SQLException On SQL syntax error
+     */
+    public static List<Appointment> loadAppointmentsBetween(LocalDateTime from, LocalDateTime to) throws SQLException {
+        return loadAppointmentsBetween(from, to, 0, 0, 0);
+    }
+
+    /**
+     * Loads the Appointments starting within a range of time, optionally limited to a single
+     * Customer, Contact, and/or User.  The range and filters are applied by the database, so
+     * only matching rows are read.
+     *
+     * @param from The earliest start time, inclusive
+     * @param to The latest start time, exclusive
+     * @param customerId Only load this Customer's appointments, or 0 for any Customer
+     * @param contactId Only load this Contact's appointments, or 0 for any Contact
+     * @param userId Only load this User's appointments, or 0 for any User
+     * @return A List of <b>Appointment</b> objects, ordered by start time
+     * @throws SQLException On SQL syntax error
+     */
+    public static List<Appointment> loadAppointmentsBetween(LocalDateTime from, LocalDateTime to,
+                                                            int customerId, int contactId, int userId) throws SQLException {
+        final List<Object> params = new ArrayList<>(List.of(from, to));
+        final StringBuilder query = new StringBuilder(appointmentsWithContact)
+                .append(" WHERE appointments.Start >= ? AND appointments.Start < ?");
+        if (customerId > 0) {
+            query.append(" AND appointments.Customer_ID = ?");
+            params.add(customerId);
+        }
+        if (contactId > 0) {
+            query.append(" AND appointments.Contact_ID = ?");
+            params.add(contactId);
+        }
+        if (userId > 0) {
+            query.append(" AND appointments.User_ID = ?");
+            params.add(userId);
+        }
+        query.append(" ORDER BY appointments.Start");
 
-        try(ResultSet R = JDBC.queryConnection("SELECT * FROM appointments "
-                +"LEFT JOIN contacts ON appointments.Contact_ID = contacts.Contact_ID;")) {
-            while (R.next()) {
-                Appointment A = new Appointment(R.getInt("Appointment_ID"));
-                A.setTitle(R.getString("Title"));
-                A.setDesc(R.getString("Description"));
-                A.setLocation(R.getString("Location"));
-                A.setType(R.getString("Type"));
+        return queryList(query.toString(), JDBC::readAppointment, params.toArray());
+    }
 
-                Timestamp start = R.getTimestamp("Start");
-                A.setStart(start.toLocalDateTime());
+    /**
+     * Loads one page of Appointments, ordered by Appointment ID.
+     *
+     * @param afterId Only appointments with a greater ID are loaded; 0 for the first page
+     * @param limit The maximum number of appointments to load
+     * @return A List of <b>Appointment</b> objects
+     * @throws SQLException On SQL syntax error
+     */
+    public static List<Appointment> loadAppointmentsPage(int afterId, int limit) throws SQLException {
+        return queryList(selectAppointmentsPage, JDBC::readAppointment, afterId, limit);
+    }
 
-                Timestamp end = R.getTimestamp("End");
-                A.setEnd(end.toLocalDateTime());
+    /**
+     * Maps a row of {@link #appointmentsWithContact}.
+     */
+    private static Appointment readAppointment(ResultSet R) throws SQLException {
+        Appointment A = new Appointment(R.getInt(1));
+        A.setTitle(R.getString(2));
+        A.setDesc(R.getString(3));
+        A.setLocation(apptLocations.intern(R.getString(4)));
+        A.setType(apptTypes.intern(R.getString(5)));
 
-                Timestamp created = R.getTimestamp("Create_Date");
-                A.setCreateDate(created.toLocalDateTime());
-                A.setCreatedBy(R.getString("Created_By"));
+        A.setStart(readTime(R, 6));
+        A.setEnd(readTime(R, 7));
 
-                Timestamp updated = R.getTimestamp("Last_Update");
-                A.setLastUpdate(updated.toLocalDateTime());
-                A.setLastUpdatedBy(R.getString("Last_Updated_By"));
+        A.setCreateDate(readTime(R, 8));
+        A.setCreatedBy(apptCreatedBy.intern(R.getString(9)));
 
-                A.setCustomerId(R.getInt("Customer_ID"));
-                A.setUserId(R.getInt("User_ID"));
-                A.setContactId(R.getInt("Contact_ID"));
-                A.setContact(R.getString("Contact_Name"));
+        A.setLastUpdate(readTime(R, 10));
+        A.setLastUpdatedBy(apptUpdatedBy.intern(R.getString(11)));
 
-                appointments.add(A);
-            }
+        A.setCustomerId(R.getInt(12));
+        A.setUserId(R.getInt(13));
+        A.setContactId(R.getInt(14));
+        A.setContact(contactNames.intern(R.getString(15)));
+
+        return A;
+    }
+
+    /**
+     * Returns the size and hit rate of the dictionary for each interned column.
+     *
+     * @return a summary of the dictionary counters
+     */
+    public static String getDictionaryStats() {
+        return String.format("appointments.Type: %s; appointments.Location: %s; contacts.Contact_Name: %s; "
+                        +"appointments.Created_By: %s; appointments.Last_Updated_By: %s; "
+                        +"customers.Created_By: %s; customers.Last_Updated_By: %s",
+                apptTypes, apptLocations, contactNames, apptCreatedBy, apptUpdatedBy, custCreatedBy, custUpdatedBy);
+    }
+
+    /**
+     * Summarizes the IDs in a table as its row count, ID sum, and ID bitwise XOR.  Comparing
+     * the summary against the IDs held in memory detects deleted rows without reading them.
+     *
+     * @param table The table to summarize
+     * @param idColumn The table's primary key column
+     * @return the count, sum, and XOR of all IDs
+     * @throws SQLException On SQL syntax error
+     */
+    static long[] loadIdChecksum(String table, String idColumn) throws SQLException {
+        try (Connection conn = getConnection();
+             ResultSet R = JDBC.queryConnection(conn, String.format(
+                     "SELECT COUNT(*), COALESCE(SUM(%1$s), 0), COALESCE(BIT_XOR(%1$s), 0) FROM %2$s", idColumn, table))) {
+            R.next();
+            return new long[] { R.getLong(1), R.getLong(2), R.getLong(3) };
         }
-        catch (SQLException sqle) {
-            Dialogs.alertUser(Alert.AlertType.ERROR, "SQL Error", "SQL Error", sqle.getMessage());
+    }
+
+    /**
+     * Counts the rows in a table.
+     *
+     * @param table The table to count
+     * @return the number of rows
+     * @throws SQLException On SQL syntax error
+     */
+    static int countRows(String table) throws SQLException {
+        try (Connection conn = getConnection();
+             ResultSet R = JDBC.queryConnection(conn, "SELECT COUNT(*) FROM " + table)) {
+            R.next();
+            return R.getInt(1);
         }
-        catch (NullPointerException npe) {
-            Dialogs.alertUser(Alert.AlertType.ERROR, "Error", "No Database Connection", npe.getMessage());
-            return null;
+    }
+
+    /**
+     * Finds the ID at a position in a table, ordered by ID.  Only the primary key index is read.
+     *
+     * @param table The table to read
+     * @param idColumn The table's primary key column
+     * @param offset The zero-based position of the row
+     * @return the ID, or null if the table has fewer rows
+     * @throws SQLException On SQL syntax error
+     */
+    static Integer loadIdAtOffset(String table, String idColumn, int offset) throws SQLException {
+        try (Connection conn = getConnection();
+             PreparedStatement select = conn.prepareStatement(String.format(
+                     "SELECT %1$s FROM %2$s ORDER BY %1$s LIMIT 1 OFFSET ?", idColumn, table))) {
+            select.setInt(1, offset);
+            try (ResultSet R = select.executeQuery()) {
+                return R.next() ? R.getInt(1) : null;
+            }
         }
+    }
 
-        return appointments;
+    /**
+     * Loads every ID in a table.
+     *
+     * @param table The table to read
+     * @param idColumn The table's primary key column
+     * @return the set of IDs
+     * @throws SQLException On SQL syntax error
+     */
+    static Set<Integer> loadIds(String table, String idColumn) throws SQLException {
+        final Set<Integer> ids = new HashSet<>();
+        try (Connection conn = getConnection();
+             ResultSet R = JDBC.queryConnection(conn, String.format("SELECT %s FROM %s", idColumn, table))) {
+            while (R.next())
+                ids.add(R.getInt(1));
+        }
+        return ids;
     }
 
     /**
-     * Adds a new appointment to the database.
+     * Adds a new appointment to the database.  The Appointment is given its generated ID, and
+     * its creation and update times and users are set to the values stored.
      *
      * @param user The user creating the new Appointment
      * @param appt The new Appointment
+     * @return the new Appointment's ID
      * @throws SQLException On SQL syntax error
      */
-    public static void insertAppointment(User user, Appointment appt) throws SQLException {
-        final String newAppointment = "INSERT INTO appointments "
-                +"(Title, Description, Location, Type, Start, End, "
-                +"Create_Date, Created_By, Last_Update, Last_Updated_By, "
-                +"Customer_ID, User_ID, Contact_ID) "
-                +"VALUES (?,?,?,?,?,?,NOW(),?,NOW(),?,?,?,?)";
-        try (PreparedStatement insert = connection.prepareStatement(newAppointment)) {
-            insert.setString(1, appt.getTitle());
-            insert.setString(2, appt.getDesc());
-            insert.setString(3, appt.getLocation());
-            insert.setString(4, appt.getType());
-            insert.setTimestamp(5, Timestamp.valueOf(appt.getStart()));
-            insert.setTimestamp(6, Timestamp.valueOf(appt.getEnd()));
-            insert.setString(7, user.getUserName());
-            insert.setString(8, user.getUserName());
-            insert.setInt(9, appt.getCustomerId());
-            insert.setInt(10, appt.getUserId());
-            insert.setInt(11, appt.getContactId());
-
-            insert.executeUpdate();
-        }
-        catch (NullPointerException npe) {
-            Dialogs.alertUser(Alert.AlertType.ERROR, "Error", "No Database Connection", npe.getMessage());
-        }
+    public static int insertAppointment(User user, Appointment appt) throws SQLException {
+        insertAppointments(user, List.of(appt)).throwIfFailed();
+        return appt.getApptId();
     }
 
     /**
-     * Updates an appointment in the database.
+     * Updates an appointment in the database.  The Appointment's update time and user are
+     * set to the values stored.
      *
      * @param user The User updating the Appointment
      * @param appt The Appointment to update
      * @throws SQLException On SQL syntax error
      */
     public static void updateAppointment(User user, Appointment appt) throws SQLException {
-        final String editAppointment = "UPDATE appointments "
-                +"SET Title = ?, Description = ?, Location = ?, Type = ?, Start = ?, End = ?, Last_Update = NOW(), Last_Updated_By = ?, Customer_ID = ?, User_ID = ?, Contact_ID = ? "
-                +"WHERE Appointment_ID = ?";
-        try (PreparedStatement update = connection.prepareStatement(editAppointment)) {
-            update.setString(1, appt.getTitle());
-            update.setString(2, appt.getDesc());
-            update.setString(3, appt.getLocation());
-            update.setString(4, appt.getType());
-            update.setTimestamp(5, Timestamp.valueOf(appt.getStart()));
-            update.setTimestamp(6, Timestamp.valueOf(appt.getEnd()));
-            update.setString(7, user.getUserName());
-            update.setInt(8, appt.getCustomerId());
-            update.setInt(9, appt.getUserId());
-            update.setInt(10, appt.getContactId());
-            update.setInt(11, appt.getApptId());
+        updateAppointments(user, List.of(appt)).throwIfFailed();
+    }
 
-            update.executeUpdate();
+    /**
+     * Adds new appointments to the database in batches.  No scheduling checks are made.  Each
+     * Appointment saved is given its generated ID, and its creation and update times and users
+     * are set to the values stored.
+     *
+     * @see #executeBatch(Connection, String, List, int, RowBinder, ObjIntConsumer)
+     * @param user The User creating the new Appointments
+     * @param appts The new Appointments
+     * @return which Appointments were saved, and why any were not
+     * @throws SQLException if the database cannot be reached
+     */
+    public static BatchResult insertAppointments(User user, List<Appointment> appts) throws SQLException {
+        try (Connection conn = getConnection()) {
+            final LocalDateTime now = serverNow(conn);
+            return executeBatch(conn, newAppointment, appts, Statement.RETURN_GENERATED_KEYS,
+                    (insert, appt) -> bindNewAppointment(insert, user, appt, now),
+                    (appt, apptId) -> stampNewAppointment(appt, apptId, user, now));
         }
-        catch (NullPointerException npe) {
-            Dialogs.alertUser(Alert.AlertType.ERROR, "Error", "No Database Connection", npe.getMessage());
+    }
+
+    /**
+     * Updates appointments in the database in batches.  No scheduling checks are made.  Each
+     * Appointment saved has its update time and user set to the values stored.
+     *
+     * @see #executeBatch(Connection, String, List, int, RowBinder, ObjIntConsumer)
+     * @param user The User updating the Appointments
+     * @param appts The Appointments to update
+     * @return which Appointments were saved, and why any were not
+     * @throws SQLException if the database cannot be reached
+     */
+    public static BatchResult updateAppointments(User user, List<Appointment> appts) throws SQLException {
+        try (Connection conn = getConnection()) {
+            final LocalDateTime now = serverNow(conn);
+            return executeBatch(conn, editAppointment, appts, Statement.NO_GENERATED_KEYS,
+                    (update, appt) -> bindAppointmentUpdate(update, user, appt, now),
+                    (appt, none) -> stampAppointmentUpdate(appt, user, now));
+        }
+    }
+
+    /**
+     * Writes rows with one statement, sending them in batches of <i>batchSize</i>.  The driver
+     * rewrites each batch of inserts as a single multi-row <i>INSERT</i>, so a batch costs one
+     * round trip, and each batch is committed on its own.
+     * <br><br>
+     * If a batch fails, it is rolled back and its rows are retried one at a time, so every row
+     * that can be saved is, and each row that cannot is reported with its own error.  A row the
+     * statement matched nothing for, such as an update of a row deleted meanwhile, is reported
+     * as failed too.
+     *
+     * @param conn The borrowed connection to write on
+     * @param sql The statement to run for each row
+     * @param rows The rows to write
+     * @param autoGeneratedKeys <i>Statement.RETURN_GENERATED_KEYS</i> to read each inserted row's ID,
+     *                          or <i>Statement.NO_GENERATED_KEYS</i>
+     * @param binder Binds a row to the statement
+     * @param onSaved Called with each row once it is committed, and its generated ID or 0
+     * @param <T> The type of row
+     * @return which rows were saved, and why any were not
+     * @throws SQLException if the database cannot be reached
+     */
+    private static <T> BatchResult executeBatch(Connection conn, String sql, List<T> rows, int autoGeneratedKeys,
+                                                RowBinder<T> binder, ObjIntConsumer<T> onSaved) throws SQLException {
+        final BatchResult result = new BatchResult(rows.size());
+        if (rows.isEmpty())
+            return result;
+
+        try (PreparedStatement S = conn.prepareStatement(sql, autoGeneratedKeys)) {
+            conn.setAutoCommit(false);
+            for (int from = 0; from < rows.size(); from += batchSize) {
+                final int to = Math.min(rows.size(), from + batchSize);
+                try {
+                    for (int i = from; i < to; i++) {
+                        binder.bind(S, rows.get(i));
+                        S.addBatch();
+                    }
+                    final int[] counts = S.executeBatch();
+                    final int[] keys = readGeneratedKeys(S, autoGeneratedKeys, to - from);
+                    conn.commit();
+                    for (int i = from; i < to; i++) {
+                        if (i - from < counts.length && counts[i - from] == 0) {
+                            result.addFailure(i, noRowMatched());
+                            continue;
+                        }
+                        onSaved.accept(rows.get(i), keys[i - from]);
+                        result.addSucceeded(1);
+                    }
+                }
+                catch (BatchUpdateException bue) {
+                    S.clearBatch();
+                    conn.rollback();
+                    for (int i = from; i < to; i++) {
+                        try {
+                            binder.bind(S, rows.get(i));
+                            if (S.executeUpdate() == 0)
+                                throw noRowMatched();
+                            final int[] keys = readGeneratedKeys(S, autoGeneratedKeys, 1);
+                            conn.commit();
+                            onSaved.accept(rows.get(i), keys[0]);
+                            result.addSucceeded(1);
+                        }
+                        catch (SQLException sqle) {
+                            if (sqle.getSQLState() != null && sqle.getSQLState().startsWith("08"))
+                                throw sqle;
+                            conn.rollback();
+                            result.addFailure(i, sqle);
+                        }
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private static SQLException noRowMatched() {
+        return new SQLException("No row was saved; it may have been deleted.", "02000");
+    }
+
+    private static int[] readGeneratedKeys(Statement S, int autoGeneratedKeys, int count) throws SQLException {
+        final int[] keys = new int[count];
+        if (autoGeneratedKeys == Statement.RETURN_GENERATED_KEYS) {
+            try (ResultSet K = S.getGeneratedKeys()) {
+                for (int i = 0; i < count && K.next(); i++)
+                    keys[i] = K.getInt(1);
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Reads the database server's current time, to the second.
+     */
+    private static LocalDateTime serverNow(Connection conn) throws SQLException {
+        try (ResultSet R = queryConnection(conn, selectNow)) {
+            R.next();
+            return R.getTimestamp(1).toLocalDateTime();
+        }
+    }
+
+    /**
+     * Inserts or updates an appointment, checking for scheduling conflicts in the same transaction.
+     * An Appointment ID of 0 inserts a new appointment; any other ID updates that appointment.
+     * <br><br>
+     * The appointment's Customer, Contact, and User rows are locked with <i>SELECT ... FOR UPDATE</i>,
+     * always in that order, before checking for overlaps.  Two bookings that share any party are
+     * serialized, so the second sees the first once it commits and is refused, while bookings for
+     * unrelated parties never wait on each other.  A booking chosen as a deadlock victim is retried.
+     *
+     * @param user The User booking the Appointment
+     * @param appt The Appointment to book
+     * @throws SQLException On SQL syntax error
+     * @throws SchedulingException if the appointment overlaps one already booked
+     */
+    public static void bookAppointment(User user, Appointment appt) throws SQLException, SchedulingException {
+        for (int attempt = 1; ; attempt++) {
+            try (Connection conn = getConnection()) {
+                conn.setAutoCommit(false);
+                // read each party's latest committed bookings once its lock is held
+                conn.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+                try {
+                    lockRow(conn, lockCustomer, appt.getCustomerId());
+                    lockRow(conn, lockContact, appt.getContactId());
+                    final LocalDateTime now = lockRow(conn, lockUser, appt.getUserId());
+                    Time.checkForSchedulingErrors(appt, findSchedulingConflicts(conn, appt));
+
+                    if (appt.getApptId() == 0) {
+                        final int apptId = insertAppointment(conn, user, appt, now);
+                        conn.commit();
+                        stampNewAppointment(appt, apptId, user, now);
+                    }
+                    else {
+                        updateAppointment(conn, user, appt, now);
+                        conn.commit();
+                        stampAppointmentUpdate(appt, user, now);
+                    }
+                    return;
+                }
+                catch (SQLException | SchedulingException e) {
+                    conn.rollback();
+                    throw e;
+                }
+            }
+            catch (SQLException sqle) {
+                // 40001: chosen as a deadlock victim, or a lock wait timed out
+                if (!"40001".equals(sqle.getSQLState()) || attempt >= bookingAttempts)
+                    throw sqle;
+            }
         }
     }
 
+    /**
+     * Locks a row for the rest of the transaction, and reads the server's current time along with it.
+     */
+    private static LocalDateTime lockRow(Connection conn, String lockSql, int id) throws SQLException {
+        try (PreparedStatement lock = conn.prepareStatement(lockSql)) {
+            lock.setInt(1, id);
+            try (ResultSet R = lock.executeQuery()) {
+                return R.next() ? R.getTimestamp(2).toLocalDateTime() : serverNow(conn);
+            }
+        }
+    }
+
+    private static int insertAppointment(Connection conn, User user, Appointment appt, LocalDateTime now) throws SQLException {
+        try (PreparedStatement insert = conn.prepareStatement(newAppointment, Statement.RETURN_GENERATED_KEYS)) {
+            bindNewAppointment(insert, user, appt, now);
+            insert.executeUpdate();
+            return readGeneratedKeys(insert, Statement.RETURN_GENERATED_KEYS, 1)[0];
+        }
+    }
+
+    private static void updateAppointment(Connection conn, User user, Appointment appt, LocalDateTime now) throws SQLException {
+        try (PreparedStatement update = conn.prepareStatement(editAppointment)) {
+            bindAppointmentUpdate(update, user, appt, now);
+            update.executeUpdate();
+        }
+    }
+
+    private static void bindNewAppointment(PreparedStatement insert, User user, Appointment appt, LocalDateTime now) throws SQLException {
+        insert.setString(1, appt.getTitle());
+        insert.setString(2, appt.getDesc());
+        insert.setString(3, appt.getLocation());
+        insert.setString(4, appt.getType());
+        insert.setTimestamp(5, Timestamp.valueOf(appt.getStart()));
+        insert.setTimestamp(6, Timestamp.valueOf(appt.getEnd()));
+        insert.setTimestamp(7, Timestamp.valueOf(now));
+        insert.setString(8, user.getUserName());
+        insert.setTimestamp(9, Timestamp.valueOf(now));
+        insert.setString(10, user.getUserName());
+        insert.setInt(11, appt.getCustomerId());
+        insert.setInt(12, appt.getUserId());
+        insert.setInt(13, appt.getContactId());
+    }
+
+    private static void bindAppointmentUpdate(PreparedStatement update, User user, Appointment appt, LocalDateTime now) throws SQLException {
+        update.setString(1, appt.getTitle());
+        update.setString(2, appt.getDesc());
+        update.setString(3, appt.getLocation());
+        update.setString(4, appt.getType());
+        update.setTimestamp(5, Timestamp.valueOf(appt.getStart()));
+        update.setTimestamp(6, Timestamp.valueOf(appt.getEnd()));
+        update.setTimestamp(7, Timestamp.valueOf(now));
+        update.setString(8, user.getUserName());
+        update.setInt(9, appt.getCustomerId());
+        update.setInt(10, appt.getUserId());
+        update.setInt(11, appt.getContactId());
+        update.setInt(12, appt.getApptId());
+    }
+
+    private static void stampNewAppointment(Appointment appt, int apptId, User user, LocalDateTime now) {
+        appt.setApptId(apptId);
+        appt.setCreateDate(now);
+        appt.setCreatedBy(user.getUserName());
+        stampAppointmentUpdate(appt, user, now);
+    }
+
+    private static void stampAppointmentUpdate(Appointment appt, User user, LocalDateTime now) {
+        appt.setLastUpdate(now);
+        appt.setLastUpdatedBy(user.getUserName());
+    }
+
     /**
      * Deletes an appointment from the database.
      *
@@ -427,8 +1134,8 @@ public abstract class JDBC {
      * @throws SQLException On SQL syntax error
      */
     public static void deleteAppointment(Appointment appt) throws SQLException {
-        final String deleteAppointment = "DELETE FROM appointments WHERE Appointment_ID=?";
-        try (PreparedStatement delete = connection.prepareStatement(deleteAppointment)) {
+        try (Connection conn = getConnection();
+             PreparedStatement delete = conn.prepareStatement(deleteAppointment)) {
             delete.setInt(1, appt.getApptId());
             delete.executeUpdate();
         }
@@ -437,6 +1144,39 @@ public abstract class JDBC {
         }
     }
 
+    /**
+     * Checks whether an Appointment's Customer, Contact, or User already has an Appointment
+     * overlapping it, in a single query.  Each party is checked by its own <i>EXISTS</i>
+     * subquery, so each can be answered from an index on (party ID, Start) without reading
+     * the rest of the table.  The Appointment itself is ignored, so it may already be saved.
+     *
+     * @param appt The Appointment to check
+     * @return whether the Customer, Contact, and User, in that order, have an overlapping Appointment
+     * @throws SQLException On SQL syntax error
+     */
+    public static boolean[] findSchedulingConflicts(Appointment appt) throws SQLException {
+        try (Connection conn = getConnection()) {
+            return findSchedulingConflicts(conn, appt);
+        }
+    }
+
+    private static boolean[] findSchedulingConflicts(Connection conn, Appointment appt) throws SQLException {
+        final int[] partyIds = { appt.getCustomerId(), appt.getContactId(), appt.getUserId() };
+
+        try (PreparedStatement find = conn.prepareStatement(findConflicts)) {
+            for (int i = 0; i < partyIds.length; i++) {
+                find.setInt(i * 4 + 1, partyIds[i]);
+                find.setInt(i * 4 + 2, appt.getApptId());
+                find.setTimestamp(i * 4 + 3, Timestamp.valueOf(appt.getEnd()));
+                find.setTimestamp(i * 4 + 4, Timestamp.valueOf(appt.getStart()));
+            }
+            try (ResultSet R = find.executeQuery()) {
+                R.next();
+                return new boolean[] { R.getBoolean(1), R.getBoolean(2), R.getBoolean(3) };
+            }
+        }
+    }
+
     // reports
 
     /**
@@ -449,13 +1189,13 @@ public abstract class JDBC {
         final StringBuilder report = new StringBuilder();
         report.append("Total number of customer appointments by Type and Month:\n\n");
 
-        try(ResultSet R = JDBC.queryConnection("SELECT COUNT(*) AS Count, Type, MONTHNAME(Start) AS Month FROM appointments GROUP BY Type, Month")) {
-            while (R.next()) {
-                final int count = R.getInt("Count");
-                final String type = R.getString("Type");
-                final String month = R.getString("Month");
+        try {
+            streamQuery(apptReport, R -> {
+                final int count = R.getInt(1);
+                final String type = R.getString(2);
+                final String month = R.getString(3);
                 report.append(String.format("There %s %d %s appointment%s in %s.\n\n", count == 1 ? "is" : "are",count, type, count==1?"":"s", month));
-            }
+            });
         }
         catch (NullPointerException npe) {
             Dialogs.alertUser(Alert.AlertType.ERROR, "Error", "No Database Connection", npe.getMessage());
@@ -478,26 +1218,28 @@ public abstract class JDBC {
         final String outputFormat = "%-20s %-8s %-20s %-20s %-20s %-20s %-20s %s";
         report.append(String.format(outputFormat, "Contact", "Appt. ID", "Title", "Type", "Description", "Start (Local Time)", "End (Local Time)", "Customer ID\n"));
         report.append(String.format(outputFormat, "-------", "--------", "-----", "----", "-----------", "------------------", "----------------", "-----------\n"));
-        try(ResultSet R = JDBC.queryConnection("SELECT contacts.Contact_ID, Contact_Name, Appointment_ID, Title, Type, Description, Start, End, Customer_ID FROM appointments "
-                +"RIGHT JOIN contacts ON contacts.Contact_ID = appointments.Contact_ID "
-                +"ORDER BY Contact_Name, Start")) {
-            int prevContactId = -1;
-            while (R.next()) {
-                final int contactId = R.getInt("Contact_ID");
+        try {
+            streamQuery(contactsReport, new RowHandler() {
+            private int prevContactId = -1;
+
+            @Override
+            public void handle(ResultSet R) throws SQLException {
+                final int contactId = R.getInt(1);
                 boolean sameContact = prevContactId == contactId;
                 if (!sameContact)
                     report.append('\n');
                 report.append(String.format(outputFormat,
-                        sameContact ? "" : R.getString("Contact_Name"),
-                        R.getInt("Appointment_ID"),
-                        R.getString("Title"),
-                        R.getString("Type"),
-                        R.getString("Description"),
-                        R.getTimestamp("Start").toLocalDateTime().format(Time.dateFormatter),
-                        R.getTimestamp("End").toLocalDateTime().format(Time.dateFormatter),
-                        R.getInt("Customer_ID"))).append('\n');
+                        sameContact ? "" : R.getString(2),
+                        R.getInt(3),
+                        R.getString(4),
+                        R.getString(5),
+                        R.getString(6),
+                        readTime(R, 7).format(Time.dateFormatter),
+                        readTime(R, 8).format(Time.dateFormatter),
+                        R.getInt(9))).append('\n');
                 prevContactId = contactId;
             }
+            });
         }
         catch (NullPointerException npe) {
             Dialogs.alertUser(Alert.AlertType.ERROR, "Error", "No Database Connection", npe.getMessage());
@@ -517,35 +1259,36 @@ public abstract class JDBC {
 
         report.append("User Activity Report - Displays all appointments each user has created or updated:\n");
         final String outputFormat = "%18s %18s %8s %10s %10s";
-        try(ResultSet R = JDBC.queryConnection("SELECT users.User_ID AS UserID, User_Name AS UserName, users.Create_Date, users.Created_By, "
-                +" Appointment_ID AS ApptID, appointments.Create_Date AS Created, appointments.Last_Update AS Updated, Customer_ID AS CustID, Contact_ID AS ContID FROM users "
-                +"RIGHT JOIN appointments ON appointments.User_ID = users.User_ID "
-                +"ORDER BY UserID, Updated")) {
-            int prevUserID = -1;
-            while (R.next()) {
-                final int userId = R.getInt("UserID");
+        try {
+            streamQuery(userReport, new RowHandler() {
+            private int prevUserID = -1;
+
+            @Override
+            public void handle(ResultSet R) throws SQLException {
+                final int userId = R.getInt(1);
                 boolean sameUser = prevUserID == userId;
                 if (!sameUser)
                 {
                     report.append(String.format("\nUser ID %d, '%s', created by '%s' on %s\n",
                             userId,
-                            R.getString("UserName"),
-                            R.getString("Created_By"),
-                            R.getTimestamp("users.Create_Date").toLocalDateTime().format(Time.dateFormatter)));
+                            R.getString(2),
+                            R.getString(4),
+                            readTime(R, 3).format(Time.dateFormatter)));
                     report.append("Appointment Activity:\n");
                     report.append(String.format(outputFormat, "DATE CREATED", "DATE UPDATED", "APPT ID", "CUST ID", "CONTACT ID\n"));
                     report.append(String.format(outputFormat, "------------", "------------", "-------", "-------", "----------\n"));
                 }
 
                 report.append(String.format(outputFormat,
-                        R.getTimestamp("Created").toLocalDateTime().format(Time.dateFormatter),
-                        R.getTimestamp("Updated").toLocalDateTime().format(Time.dateFormatter),
-                        R.getInt("ApptID"),
-                        R.getInt("CustID"),
-                        R.getInt("ContID"))).append('\n');
+                        readTime(R, 6).format(Time.dateFormatter),
+                        readTime(R, 7).format(Time.dateFormatter),
+                        R.getInt(5),
+                        R.getInt(8),
+                        R.getInt(9))).append('\n');
 
                 prevUserID = userId;
             }
+            });
         }
         catch (NullPointerException npe) {
             Dialogs.alertUser(Alert.AlertType.ERROR, "Error", "No Database Connection", npe.getMessage());
@@ -0,0 +1,52 @@
+package database;
+
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * A source of rows that can be read one page at a time using keyset pagination.
+ * Rows are ordered by a unique key, and each page is read starting after the key
+ * of the last row on the previous page.
+ *
+ * @see PagedList
+ * @param <T> the type of row
+ * @param <K> the type of the ordering key
+ * @author Jonathan Hawranko
+ */
+public interface PageSource<T, K> {
+    /**
+     * Counts all rows.
+     *
+     * @return the total number of rows
+     * @throws SQLException On SQL syntax error
+     */
+    int count() throws SQLException;
+
+    /**
+     * Reads up to <b>limit</b> rows ordered by key, starting after <b>after</b>.
+     *
+     * @param after The key of the last row on the previous page, or null for the first page
+     * @param limit The maximum number of rows to read
+     * @return the rows, in key order
+     * @throws SQLException On SQL syntax error
+     */
+    List<T> fetchPage(K after, int limit) throws SQLException;
+
+    /**
+     * Finds the key of the row just before <b>offset</b>, so a page far from any loaded
+     * page can be read without reading every page in between.
+     *
+     * @param offset The position of the first row of the page, greater than 0
+     * @return the key of the row at <b>offset</b> - 1
+     * @throws SQLException On SQL syntax error
+     */
+    K keyBefore(int offset) throws SQLException;
+
+    /**
+     * Returns the ordering key of a row.
+     *
+     * @param row a row read from this source
+     * @return the row's key
+     */
+    K keyOf(T row);
+}
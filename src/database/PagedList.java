@@ -0,0 +1,307 @@
+package database;
+
+import javafx.application.Platform;
+import javafx.collections.ObservableListBase;
+import model.Appointment;
+import model.Customer;
+
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A read-only list that loads its rows from the database one page at a time, as they are
+ * requested.  Bound to a <b>TableView</b>, only the pages the user scrolls to are read.
+ * <br><br>
+ * Pages are read in the background, never on the JavaFX Application Thread: a row whose page
+ * has not arrived yet reads as null, and is reported as replaced once it does.  Pages are read
+ * with keyset pagination, starting after the key of the previous page's last row.  A bounded
+ * number of pages are kept, evicting the least recently used, and the page following the one
+ * just read is prefetched.  The last key of every page
+ * read so far is remembered, so returning to an evicted page costs a single query.
+ *
+ * @param <T> the type of row
+ * @param <K> the type of the ordering key
+ * @author Jonathan Hawranko
+ */
+public class PagedList<T, K> extends ObservableListBase<T> {
+    private static final Logger log = Logger.getLogger(PagedList.class.getName());
+
+    /**
+     * Pages further than this from the nearest known page are located with
+     * {@link PageSource#keyBefore(int)} rather than by reading the pages in between.
+     */
+    private static final int MAX_WALK = 2;
+
+    private final PageSource<T, K> source;
+    private final int pageSize;
+    private final Map<Integer, List<T>> pages;
+    private final Map<Integer, K> lastKeys = new HashMap<>();
+    private final Set<Integer> loading = new HashSet<>();
+    private int size;
+    private int generation; // bumped by refresh(), so loads begun before it are dropped
+
+    /**
+     * Constructor for a PagedList.  The list starts empty, and reads nothing until
+     * {@link #load} or {@link #refresh()} is called.
+     *
+     * @param source The source of rows
+     * @param pageSize The number of rows per page
+     * @param maxPages The number of pages kept in memory
+     */
+    public PagedList(PageSource<T, K> source, int pageSize, int maxPages) {
+        this.source = source;
+        this.pageSize = pageSize;
+        this.pages = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<T>> eldest) {
+                return size() > maxPages;
+            }
+        };
+    }
+
+    /**
+     * Creates a list of all Appointments, ordered by Appointment ID.
+     *
+     * @param pageSize The number of rows per page
+     * @param maxPages The number of pages kept in memory
+     * @return a paged list of Appointments
+     */
+    public static PagedList<Appointment, Integer> appointments(int pageSize, int maxPages) {
+        return new PagedList<>(new PageSource<Appointment, Integer>() {
+            @Override
+            public int count() throws SQLException {
+                return JDBC.countRows("appointments");
+            }
+
+            @Override
+            public List<Appointment> fetchPage(Integer after, int limit) throws SQLException {
+                return JDBC.loadAppointmentsPage(after == null ? 0 : after, limit);
+            }
+
+            @Override
+            public Integer keyBefore(int offset) throws SQLException {
+                return JDBC.loadIdAtOffset("appointments", "Appointment_ID", offset - 1);
+            }
+
+            @Override
+            public Integer keyOf(Appointment row) {
+                return row.getApptId();
+            }
+        }, pageSize, maxPages);
+    }
+
+    /**
+     * Creates a list of all Customers, ordered by Customer ID.
+     *
+     * @param pageSize The number of rows per page
+     * @param maxPages The number of pages kept in memory
+     * @return a paged list of Customers
+     */
+    public static PagedList<Customer, Integer> customers(int pageSize, int maxPages) {
+        return new PagedList<>(new PageSource<Customer, Integer>() {
+            @Override
+            public int count() throws SQLException {
+                return JDBC.countRows("customers");
+            }
+
+            @Override
+            public List<Customer> fetchPage(Integer after, int limit) throws SQLException {
+                return JDBC.loadCustomersPage(after == null ? 0 : after, limit);
+            }
+
+            @Override
+            public Integer keyBefore(int offset) throws SQLException {
+                return JDBC.loadIdAtOffset("customers", "Customer_ID", offset - 1);
+            }
+
+            @Override
+            public Integer keyOf(Customer row) {
+                return row.getCustomerId();
+            }
+        }, pageSize, maxPages);
+    }
+
+    @Override
+    public T get(int index) {
+        Objects.checkIndex(index, size);
+        final int page = index / pageSize;
+        final List<T> rows;
+        synchronized (pages) {
+            rows = pages.get(page);
+        }
+        if (rows == null) {
+            request(page);
+            return null;
+        }
+        request(page + 1);
+
+        final int offset = index % pageSize;
+        return offset < rows.size() ? rows.get(offset) : null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Discards every loaded page and re-counts the rows in the background.  Used after rows
+     * are added or removed.  The list keeps its current rows until the new count arrives.
+     */
+    public void refresh() {
+        final int refreshed = ++generation;
+        AsyncDB.supply(source::count).whenCompleteAsync((count, error) -> {
+            if (refreshed != generation)
+                return;
+            if (error != null) {
+                log.log(Level.WARNING, "Unable to count rows", AsyncDB.causeOf(error));
+                return;
+            }
+
+            final int oldSize = size;
+            synchronized (pages) {
+                pages.clear();
+                lastKeys.clear();
+                loading.clear();
+            }
+            size = count;
+
+            beginChange();
+            if (oldSize > 0)
+                nextRemove(0, Collections.nCopies(oldSize, (T) null));
+            if (size > 0)
+                nextAdd(0, size);
+            endChange();
+        }, AsyncDB.fxThread);
+    }
+
+    /**
+     * Reads the row count and the first page at the same time, and reports both at once, so a
+     * bound <b>TableView</b> draws its first rows without first waiting for the count.  Used to
+     * fill the list when it is first shown.  If either read fails, the list falls back to
+     * {@link #refresh()}.
+     *
+     * @param ready The first page is read once this completes, such as the reference data its rows refer to
+     * @return a future completed on the JavaFX Application Thread once the first rows are reported
+     */
+    public CompletableFuture<Void> load(CompletableFuture<?> ready) {
+        final int loaded = ++generation;
+        synchronized (pages) {
+            loading.add(0);
+        }
+
+        final CompletableFuture<Integer> count = AsyncDB.supply(source::count);
+        final CompletableFuture<List<T>> first = ready.thenCompose(r -> AsyncDB.supply(() -> source.fetchPage(null, pageSize)));
+        return count.thenAcceptBothAsync(first, (counted, rows) -> {
+            if (loaded != generation)
+                return;
+
+            final int oldSize = size;
+            synchronized (pages) {
+                pages.clear();
+                lastKeys.clear();
+                loading.clear();
+            }
+            store(0, rows);
+            size = counted;
+
+            beginChange();
+            if (oldSize > 0)
+                nextRemove(0, Collections.nCopies(oldSize, (T) null));
+            if (size > 0)
+                nextAdd(0, size);
+            endChange();
+        }, AsyncDB.fxThread).whenCompleteAsync((done, error) -> {
+            if (error != null && loaded == generation) {
+                log.log(Level.WARNING, "Unable to load first page", AsyncDB.causeOf(error));
+                refresh();
+            }
+        }, AsyncDB.fxThread);
+    }
+
+    /**
+     * Loads a page in the background, unless it is loaded or already loading.  Once it arrives,
+     * its rows are reported as replaced, so any bound <b>TableView</b> redraws them.  If it fails,
+     * the page is requested again the next time one of its rows is read.
+     */
+    private void request(int page) {
+        if (page * pageSize >= size)
+            return;
+        synchronized (pages) {
+            if (pages.containsKey(page) || !loading.add(page))
+                return;
+        }
+
+        final int requested = generation;
+        // always deliver later, never inside the get() that asked for the page
+        AsyncDB.supply(() -> fetch(page)).whenCompleteAsync((fetched, error) -> {
+            synchronized (pages) {
+                loading.remove(page);
+            }
+            if (requested != generation)
+                return;
+            if (error != null) {
+                // left unloaded, so the next get() of one of its rows tries again
+                log.log(Level.WARNING, "Unable to load page " + page, AsyncDB.causeOf(error));
+                return;
+            }
+            fetched.forEach(this::store);
+
+            final int from = page * pageSize;
+            final int to = Math.min(size, from + pageSize);
+            if (from < to) {
+                beginChange();
+                nextReplace(from, to, Collections.nCopies(to - from, (T) null));
+                endChange();
+            }
+        }, Platform::runLater);
+    }
+
+    /**
+     * Reads a page, and any pages before it that must be walked through to find its first key.
+     * Runs on a worker thread; the pages read are returned rather than stored.
+     */
+    private Map<Integer, List<T>> fetch(int page) throws SQLException {
+        final Map<Integer, List<T>> fetched = new HashMap<>();
+
+        // start from the nearest page whose last key is known
+        int from = page;
+        while (from > 0 && from > page - MAX_WALK && keyBeforePage(from) == null)
+            from--;
+
+        K after = from == 0 ? null : keyBeforePage(from);
+        if (from > 0 && after == null) {
+            from = page;
+            after = source.keyBefore(page * pageSize);
+            if (after == null)
+                from = page + 1;
+        }
+
+        for (int p = from; p <= page; p++) {
+            final List<T> rows = source.fetchPage(after, pageSize);
+            fetched.put(p, rows);
+            if (rows.isEmpty())
+                break;
+            after = source.keyOf(rows.get(rows.size() - 1));
+        }
+        fetched.putIfAbsent(page, Collections.emptyList());
+        return fetched;
+    }
+
+    private K keyBeforePage(int page) {
+        synchronized (pages) {
+            return lastKeys.get(page - 1);
+        }
+    }
+
+    private void store(int page, List<T> rows) {
+        synchronized (pages) {
+            pages.put(page, rows);
+            if (!rows.isEmpty())
+                lastKeys.put(page, source.keyOf(rows.get(rows.size() - 1)));
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package database;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.scene.control.Alert;
+import model.Contact;
+import model.Country;
+import model.Division;
+import util.Dialogs;
+import util.IntMap;
+import util.TtlCache;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Registry of the reference tables: Countries, Divisions, and Contacts.
+ * <br><br>
+ * Each table is loaded through a read-through cache and indexed by its ID, so resolving
+ * a Customer's Division or an Appointment's Contact is a single lookup rather than a scan
+ * of the whole list, and costs no database round trip while the cache is fresh.  Cached
+ * tables expire after a time-to-live, and can be invalidated early if they are changed.
+ * An expired table is reloaded in the background while the stale one is still served, so
+ * lookups made on the JavaFX Application Thread never wait on the database once the table
+ * has first been loaded.  A reload that fails is logged and keeps the stale table; only a
+ * failed first load is reported to the user.  Reloaded rows are new objects, but equal to
+ * the ones they replace.
+ * Countries and Divisions can also be found by name, for <i>ComboBox</i> converters.
+ *
+ * @author Jonathan Hawranko
+ */
+public abstract class ReferenceData {
+    private static final long DEFAULT_TTL_MILLIS = 60 * 60 * 1000;
+    private static final Executor background = task -> AsyncDB.run(task::run);
+    private static final Logger   log        = Logger.getLogger(ReferenceData.class.getName());
+
+    private static final TtlCache<Table<Country>> countries = new TtlCache<>(
+            () -> Table.of(JDBC::loadCountries, Country::getCountryId, Country::getCountry), DEFAULT_TTL_MILLIS, background);
+    private static final TtlCache<Table<Division>> divisions = new TtlCache<>(
+            () -> Table.of(JDBC::loadDivisions, Division::getDivisionId, Division::getDivision), DEFAULT_TTL_MILLIS, background);
+    private static final TtlCache<Table<Contact>> contacts = new TtlCache<>(
+            () -> Table.of(JDBC::loadContacts, Contact::getContactId, Contact::getName), DEFAULT_TTL_MILLIS, background);
+
+    /**
+     * Returns all Countries, loading them if they are not cached.
+     *
+     * @return all Countries
+     */
+    public static ObservableList<Country> getCountries() {
+        return Table.listOf(countries);
+    }
+
+    /**
+     * Returns all Divisions, loading them if they are not cached.
+     *
+     * @return all Divisions
+     */
+    public static ObservableList<Division> getDivisions() {
+        return Table.listOf(divisions);
+    }
+
+    /**
+     * Returns all Contacts, loading them if they are not cached.
+     *
+     * @return all Contacts
+     */
+    public static ObservableList<Contact> getContacts() {
+        return Table.listOf(contacts);
+    }
+
+    /**
+     * Finds a Country by ID.
+     *
+     * @param countryId the Country's ID
+     * @return the Country, or null if there is none with that ID
+     */
+    public static Country getCountry(int countryId) {
+        final Table<Country> T = countries.get();
+        return T == null ? null : T.byId.get(countryId);
+    }
+
+    /**
+     * Finds a Division by ID.
+     *
+     * @param divisionId the Division's ID
+     * @return the Division, or null if there is none with that ID
+     */
+    public static Division getDivision(int divisionId) {
+        final Table<Division> T = divisions.get();
+        return T == null ? null : T.byId.get(divisionId);
+    }
+
+    /**
+     * Finds a Contact by ID.
+     *
+     * @param contactId the Contact's ID
+     * @return the Contact, or null if there is none with that ID
+     */
+    public static Contact getContact(int contactId) {
+        final Table<Contact> T = contacts.get();
+        return T == null ? null : T.byId.get(contactId);
+    }
+
+    /**
+     * Finds a Country by name, ignoring case.
+     *
+     * @param name the Country's name
+     * @return the Country, or null if there is none with that name
+     */
+    public static Country findCountry(String name) {
+        final Table<Country> T = countries.get();
+        return T == null || name == null ? null : T.byName.get(name.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Finds a Division by name, ignoring case.
+     *
+     * @param name the Division's name
+     * @return the Division, or null if there is none with that name
+     */
+    public static Division findDivision(String name) {
+        final Table<Division> T = divisions.get();
+        return T == null || name == null ? null : T.byName.get(name.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Expires every cached table, so each is reloaded in the background the next time it is used.
+     * Call after changing the countries, first_level_divisions, or contacts tables.
+     */
+    public static void invalidate() {
+        countries.invalidate();
+        divisions.invalidate();
+        contacts.invalidate();
+    }
+
+    /**
+     * Sets how long a loaded table is cached before it is reloaded.
+     *
+     * @param ttlMillis time-to-live, in milliseconds
+     */
+    public static void setTtlMillis(long ttlMillis) {
+        countries.setTtlMillis(ttlMillis);
+        divisions.setTtlMillis(ttlMillis);
+        contacts.setTtlMillis(ttlMillis);
+    }
+
+    /**
+     * Returns the hit and miss counts of each cached table.
+     *
+     * @return a summary of the cache counters
+     */
+    public static String getCacheStats() {
+        return String.format("countries: %s; divisions: %s; contacts: %s", countries, divisions, contacts);
+    }
+
+    /**
+     * A loaded reference table, indexed by ID and by name.  Never modified once built,
+     * so it can be read from any thread.
+     */
+    private static final class Table<T> {
+        final ObservableList<T> list;
+        final IntMap<T>         byId;
+        final Map<String, T>    byName = new HashMap<>();
+
+        private Table(List<T> rows, Function<T, Integer> idOf, Function<T, String> nameOf) {
+            list = FXCollections.observableArrayList(rows);
+            byId = new IntMap<>(rows.size());
+            for (final T row : rows) {
+                byId.put(idOf.apply(row), row);
+                if (nameOf.apply(row) != null)
+                    byName.put(nameOf.apply(row).toLowerCase(Locale.ROOT), row);
+            }
+        }
+
+        /**
+         * Loads a table, or returns null if it cannot be loaded, so the cache keeps what it has.
+         */
+        static <T> Table<T> of(Callable<List<T>> loader, Function<T, Integer> idOf, Function<T, String> nameOf) {
+            try {
+                return new Table<>(loader.call(), idOf, nameOf);
+            }
+            catch (Exception e) {
+                log.log(Level.WARNING, "Unable to load reference table", e);
+                return null;
+            }
+        }
+
+        /**
+         * Returns a table's rows, alerting the user if it has never been loaded.
+         */
+        static <T> ObservableList<T> listOf(TtlCache<Table<T>> cache) {
+            final Table<T> T = cache.get();
+            if (T != null)
+                return T.list;
+            Dialogs.alertUser(Alert.AlertType.ERROR, "SQL Error", "SQL Error", "Unable to load reference data from the database.");
+            return FXCollections.observableArrayList();
+        }
+    }
+}
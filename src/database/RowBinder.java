@@ -0,0 +1,23 @@
+package database;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Callback that binds one row's values to a statement's parameters.
+ *
+ * @see JDBC#insertAppointments(model.User, java.util.List)
+ * @param <T> the type of row
+ * @author Jonathan Hawranko
+ */
+@FunctionalInterface
+public interface RowBinder<T> {
+    /**
+     * Binds a single row.  Every parameter of the statement must be set.
+     *
+     * @param statement The statement to bind to
+     * @param row The row to bind
+     * @throws SQLException On SQL error while binding the row
+     */
+    void bind(PreparedStatement statement, T row) throws SQLException;
+}
@@ -0,0 +1,22 @@
+package database;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Callback for rows streamed from the database.
+ *
+ * @see JDBC#streamQuery(String, RowHandler, Object...)
+ * @author Jonathan Hawranko
+ */
+@FunctionalInterface
+public interface RowHandler {
+    /**
+     * Handles a single row.  The <b>ResultSet</b> is positioned on the row, and is only
+     * valid until this method returns.
+     *
+     * @param row The current row
+     * @throws SQLException On SQL error while reading the row
+     */
+    void handle(ResultSet row) throws SQLException;
+}
@@ -0,0 +1,25 @@
+package database;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps one row of a result set to an object.  Mappers read their columns by position, in the
+ * order of the projection they were written for, so no column label is looked up per row.
+ *
+ * @see JDBC#queryList(String, RowMapper, Object...)
+ * @param <T> the type of object
+ * @author Jonathan Hawranko
+ */
+@FunctionalInterface
+public interface RowMapper<T> {
+    /**
+     * Maps a single row.  The <b>ResultSet</b> is positioned on the row, and is only
+     * valid until this method returns.
+     *
+     * @param row The current row
+     * @return the mapped object
+     * @throws SQLException On SQL error while reading the row
+     */
+    T map(ResultSet row) throws SQLException;
+}
@@ -0,0 +1,180 @@
+package database;
+
+import javafx.application.Platform;
+import javafx.beans.value.ChangeListener;
+import javafx.beans.value.ObservableValue;
+import javafx.scene.Node;
+import javafx.scene.Scene;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Times the loads a screen starts with, from login to the first frame the user can work in.
+ * <br><br>
+ * Each stage is started through {@link AsyncDB}, so independent stages run at the same time,
+ * each on its own pooled connection, and a stage that needs another is chained to that
+ * stage's future rather than waiting on a thread.  The time each stage started and finished
+ * is recorded, and once the stages the screen needs have finished, the next frame drawn is
+ * recorded as the time to interactive.  All times are in milliseconds since the origin.
+ *
+ * @author Jonathan Hawranko
+ */
+public class StartupPipeline {
+    private static final Logger log = Logger.getLogger(StartupPipeline.class.getName());
+
+    private final List<Stage> stages = new ArrayList<>();
+    private volatile long origin = System.nanoTime();
+    private volatile long interactive;
+
+    /**
+     * Sets when startup began, such as when the login succeeded.  Defaults to when this
+     * pipeline was created.
+     *
+     * @param nanoTime A <i>System.nanoTime()</i> reading
+     */
+    public void setOrigin(long nanoTime) {
+        this.origin = nanoTime;
+    }
+
+    /**
+     * Runs a stage's database work on a worker thread, timing the work itself.
+     *
+     * @param name The stage's name, for {@link #getTimings()}
+     * @param work The work to run
+     * @param <T> The type of result
+     * @return a future completed with the work's result
+     */
+    public <T> CompletableFuture<T> stage(String name, Callable<T> work) {
+        final Stage S = add(name);
+        final CompletableFuture<T> future = AsyncDB.supply(() -> {
+            S.started = System.nanoTime();
+            try {
+                return work.call();
+            }
+            finally {
+                S.finished = System.nanoTime();
+            }
+        });
+        future.whenComplete((result, error) -> S.failed = error != null);
+        return future;
+    }
+
+    /**
+     * Times a stage that is already under way, such as one chained to other stages, from now
+     * until its future completes.
+     *
+     * @param name The stage's name, for {@link #getTimings()}
+     * @param work The stage's future
+     * @param <T> The type of result
+     * @return <b>work</b>
+     */
+    public <T> CompletableFuture<T> track(String name, CompletableFuture<T> work) {
+        final Stage S = add(name);
+        S.started = System.nanoTime();
+        work.whenComplete((result, error) -> {
+            S.finished = System.nanoTime();
+            S.failed = error != null;
+        });
+        return work;
+    }
+
+    /**
+     * Records the first frame drawn after some stages finish as the time to interactive, and
+     * logs the timings at <i>FINE</i>.  The stages need not succeed; the screen is usable either way.
+     *
+     * @param ready The stages the screen needs
+     * @param node A node of the screen, whose scene's frames are watched
+     */
+    public void interactiveWhen(CompletableFuture<?> ready, Node node) {
+        ready.whenCompleteAsync((done, error) -> {
+            if (node.getScene() != null) {
+                awaitFrame(node.getScene());
+                return;
+            }
+            node.sceneProperty().addListener(new ChangeListener<Scene>() {
+                @Override
+                public void changed(ObservableValue<? extends Scene> ov, Scene t, Scene scene) {
+                    if (scene != null) {
+                        node.sceneProperty().removeListener(this);
+                        awaitFrame(scene);
+                    }
+                }
+            });
+        }, AsyncDB.fxThread);
+    }
+
+    private void awaitFrame(Scene scene) {
+        scene.addPostLayoutPulseListener(new Runnable() {
+            @Override
+            public void run() {
+                scene.removePostLayoutPulseListener(this);
+                interactive = System.nanoTime();
+                log.log(Level.FINE, "Startup: {0}", getTimings());
+            }
+        });
+        Platform.requestNextPulse();
+    }
+
+    /**
+     * Returns the time from the origin to the first interactive frame.
+     *
+     * @return the time to interactive in milliseconds, or -1 if it has not been reached
+     */
+    public long getTimeToInteractive() {
+        final long at = interactive;
+        return at == 0 ? -1 : millis(at);
+    }
+
+    /**
+     * Returns when each stage started and finished, and the time to interactive.
+     *
+     * @return a summary of the startup timings
+     */
+    public String getTimings() {
+        final StringBuilder sb = new StringBuilder();
+        synchronized (stages) {
+            for (final Stage S : stages) {
+                sb.append(S.name).append(' ');
+                if (S.finished == 0)
+                    sb.append("pending");
+                else
+                    sb.append(String.format("%d-%d ms%s", millis(S.started), millis(S.finished), S.failed ? " (failed)" : ""));
+                sb.append("; ");
+            }
+        }
+        final long tti = getTimeToInteractive();
+        sb.append("interactive ").append(tti < 0 ? "pending" : tti + " ms");
+        return sb.toString();
+    }
+
+    private Stage add(String name) {
+        final Stage S = new Stage(name);
+        synchronized (stages) {
+            stages.add(S);
+        }
+        return S;
+    }
+
+    private long millis(long nanoTime) {
+        return (nanoTime - origin) / 1_000_000;
+    }
+
+    /**
+     * One stage's timings, as <i>System.nanoTime()</i> readings; 0 until reached.
+     */
+    private static final class Stage {
+        final String     name;
+        volatile long    started;
+        volatile long    finished;
+        volatile boolean failed;
+
+        Stage(String name) {
+            this.name = name;
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package database;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The prepared statements of one pooled connection, kept open for reuse.
+ * <br><br>
+ * Only SQL registered with {@link ConnectionPool#cacheStatements} is cached, keyed by its text
+ * and the options it was prepared with.  A borrower is given a handle to the cached statement,
+ * and closing the handle checks the statement back in, with its parameters, batch, and fetch
+ * size cleared, rather than closing it.  If the statement is already checked out, a separate
+ * statement is prepared and closed as usual.  At most <b>capacity</b> statements are kept; the
+ * least recently used is closed to make room, or once it is checked back in if it is in use.
+ *
+ * @author Jonathan Hawranko
+ */
+class StatementCache {
+    private final ConnectionPool pool;
+    private final Connection     physical;
+    private final int            capacity;
+    private final LinkedHashMap<List<Object>, Cached> entries;
+
+    /**
+     * Constructor for an empty StatementCache.
+     *
+     * @param pool The pool the connection belongs to, which counts hits and misses
+     * @param physical The connection statements are prepared on
+     * @param capacity The most statements kept open
+     */
+    StatementCache(ConnectionPool pool, Connection physical, int capacity) {
+        this.pool = pool;
+        this.physical = physical;
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<List<Object>, Cached> eldest) {
+                if (size() <= StatementCache.this.capacity)
+                    return false;
+                eldest.getValue().evict();
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Prepares a statement, from the cache if its SQL is registered.
+     *
+     * @param connection The borrower's handle, returned by the statement's <i>getConnection()</i>
+     * @param method The <i>prepareStatement</i> overload called
+     * @param args The arguments it was called with; the SQL first
+     * @return a statement
+     * @throws Throwable whatever preparing the statement threw
+     */
+    synchronized PreparedStatement prepare(Connection connection, Method method, Object[] args) throws Throwable {
+        final String sql = (String) args[0];
+        final List<Object> key = Arrays.asList(args);
+        if (capacity <= 0 || !pool.isCached(sql) || !isCacheable(args))
+            return (PreparedStatement) invoke(physical, method, args);
+
+        Cached entry = entries.get(key);
+        if (entry != null && !entry.checkedOut && !entry.statement.isClosed()) {
+            pool.countStatement(true);
+            return entry.checkOut(connection);
+        }
+        pool.countStatement(false);
+        final PreparedStatement statement = (PreparedStatement) invoke(physical, method, args);
+        if (entry != null && entry.checkedOut)
+            return statement;
+
+        entry = new Cached(statement);
+        entries.put(key, entry);
+        return entry.checkOut(connection);
+    }
+
+    /**
+     * Checks in every statement the last borrower left open.  Called when the connection is
+     * returned to the pool.
+     */
+    synchronized void releaseAll() {
+        for (final Iterator<Cached> it = entries.values().iterator(); it.hasNext(); ) {
+            final Cached entry = it.next();
+            if (entry.checkedOut && !entry.checkIn())
+                it.remove();
+        }
+    }
+
+    /**
+     * Closes every cached statement.
+     */
+    synchronized void close() {
+        for (final Cached entry : entries.values())
+            entry.closeQuietly();
+        entries.clear();
+    }
+
+    /**
+     * Returns the number of statements held open.
+     *
+     * @return the cached statement count
+     */
+    synchronized int size() {
+        return entries.size();
+    }
+
+    private synchronized void checkIn(Cached entry) {
+        if (!entry.checkIn())
+            entries.values().remove(entry);
+    }
+
+    /**
+     * Only overloads whose options are all simple values can be keyed; those taking arrays of
+     * column indexes or names are prepared uncached.
+     */
+    private static boolean isCacheable(Object[] args) {
+        for (int i = 1; i < args.length; i++)
+            if (!(args[i] instanceof Integer))
+                return false;
+        return true;
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        }
+        catch (InvocationTargetException ite) {
+            throw ite.getCause();
+        }
+    }
+
+    /**
+     * A cached statement, and the handle it is checked out through.
+     */
+    private class Cached {
+        final PreparedStatement statement;
+        final List<ResultSet>   results = new ArrayList<>(1);
+        boolean checkedOut;
+        boolean evicted;
+        boolean fetchSizeChanged;
+        Handle  handle;
+
+        Cached(PreparedStatement statement) {
+            this.statement = statement;
+        }
+
+        PreparedStatement checkOut(Connection connection) {
+            checkedOut = true;
+            handle = new Handle(this, connection);
+            return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                    new Class<?>[] { PreparedStatement.class }, handle);
+        }
+
+        /**
+         * Closes the borrower's results and clears the statement for the next borrower.
+         *
+         * @return false if the statement was closed instead, and should be dropped from the cache
+         */
+        boolean checkIn() {
+            handle.closed = true;
+            handle = null;
+            checkedOut = false;
+            try {
+                for (final ResultSet R : results)
+                    R.close();
+                results.clear();
+                statement.clearParameters();
+                statement.clearBatch();
+                statement.clearWarnings();
+                if (fetchSizeChanged) {
+                    statement.setFetchSize(0);
+                    fetchSizeChanged = false;
+                }
+                if (!evicted)
+                    return true;
+            }
+            catch (SQLException sqle) {
+                // fall through and close it
+            }
+            closeQuietly();
+            return false;
+        }
+
+        void evict() {
+            evicted = true;
+            if (!checkedOut)
+                closeQuietly();
+        }
+
+        void closeQuietly() {
+            try {
+                statement.close();
+            }
+            catch (SQLException ignored) {
+            }
+        }
+    }
+
+    /**
+     * The borrower's view of a cached statement.  Calls are forwarded to the statement, except
+     * <i>close()</i>, which checks it back in, and <i>closeOnCompletion()</i>, which checks it
+     * back in once its result set is closed.
+     */
+    private class Handle implements InvocationHandler {
+        private final Cached      entry;
+        private final Connection connection;
+        private boolean          closeOnCompletion;
+        boolean                  closed;
+
+        Handle(Cached entry, Connection connection) {
+            this.entry = entry;
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed)
+                        checkIn(entry);
+                    return null;
+                case "isClosed":
+                    return closed;
+                case "toString":
+                    return "Cached " + entry.statement;
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+            }
+            if (closed)
+                throw new SQLException("Statement has already been closed.", "S1009");
+
+            switch (method.getName()) {
+                case "getConnection":
+                    return connection;
+                case "closeOnCompletion":
+                    closeOnCompletion = true;
+                    return null;
+                case "isCloseOnCompletion":
+                    return closeOnCompletion;
+                case "setFetchSize":
+                    entry.fetchSizeChanged = true;
+                    break;
+            }
+
+            final Object result = StatementCache.invoke(entry.statement, method, args);
+            if (result instanceof ResultSet) {
+                entry.results.add((ResultSet) result);
+                if (closeOnCompletion)
+                    return closingResults((ResultSet) result, (PreparedStatement) proxy);
+            }
+            return result;
+        }
+
+        /**
+         * Wraps a result set so closing it also closes the statement handle.
+         */
+        private ResultSet closingResults(ResultSet results, PreparedStatement statement) {
+            return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[] { ResultSet.class },
+                    (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "close":
+                                results.close();
+                                statement.close();
+                                return null;
+                            case "getStatement":
+                                return statement;
+                            case "hashCode":
+                                return System.identityHashCode(proxy);
+                            case "equals":
+                                return proxy == args[0];
+                        }
+                        return StatementCache.invoke(results, method, args);
+                    });
+        }
+    }
+}
@@ -82,4 +82,20 @@ public class Contact {
     public String toString() {
         return getName();
     }
+
+    /**
+     * Compares Contacts by ID, so a reloaded Contact equals the one it replaces.
+     *
+     * @param o The object to compare to
+     * @return true if <b>o</b> is a Contact with the same ID
+     */
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Contact && ((Contact) o).contactId == contactId;
+    }
+
+    @Override
+    public int hashCode() {
+        return Integer.hashCode(contactId);
+    }
 }
@@ -136,4 +136,20 @@ public class Country {
     public void setLastUpdatedBy(String lastUpdatedBy) {
         this.lastUpdatedBy = lastUpdatedBy;
     }
+
+    /**
+     * Compares Countries by ID, so a reloaded Country equals the one it replaces.
+     *
+     * @param o The object to compare to
+     * @return true if <b>o</b> is a Country with the same ID
+     */
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Country && ((Country) o).countryId == countryId;
+    }
+
+    @Override
+    public int hashCode() {
+        return Integer.hashCode(countryId);
+    }
 }
@@ -166,4 +166,20 @@ public class Division {
     public String toString() {
         return division;
     }
+
+    /**
+     * Compares Divisions by ID, so a reloaded Division equals the one it replaces.
+     *
+     * @param o The object to compare to
+     * @return true if <b>o</b> is a Division with the same ID
+     */
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Division && ((Division) o).divisionId == divisionId;
+    }
+
+    @Override
+    public int hashCode() {
+        return Integer.hashCode(divisionId);
+    }
 }
@@ -0,0 +1,209 @@
+package util;
+
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import model.Appointment;
+import model.Customer;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Index of Appointments by Customer, Contact, User, Type, and start date, for filtering on any
+ * combination of them at once.
+ * <br><br>
+ * Each value of each attribute has a {@link CompressedBitmap} of the IDs of the Appointments
+ * having it.  A filter is built by combining those bitmaps with <i>and</i>, <i>or</i>, and
+ * <i>andNot</i>, and only the Appointments in the result are ever visited, when it is passed to
+ * {@link #lookup}.  The bitmaps returned are the index's own, and change along with it, so they
+ * are meant to be combined and looked up straight away on the JavaFX Application Thread.
+ * Customers' Countries and Divisions are not stored here; they are found with
+ * {@link CustomerIndex} and passed to {@link #withCustomers}.  Like {@link ConflictIndex}, the
+ * index listens to the list it was built from and stays current as Appointments are inserted,
+ * updated, and deleted.
+ *
+ * @author Jonathan Hawranko
+ */
+public class AppointmentIndex {
+    private static final CompressedBitmap NONE = new CompressedBitmap();
+
+    private final IntMap<Appointment>                 byId       = new IntMap<>();
+    private final CompressedBitmap                    all        = new CompressedBitmap();
+    private final IntMap<CompressedBitmap>            byCustomer = new IntMap<>();
+    private final IntMap<CompressedBitmap>            byContact  = new IntMap<>();
+    private final IntMap<CompressedBitmap>            byUser     = new IntMap<>();
+    private final NavigableMap<String, CompressedBitmap> byType  = new TreeMap<>();
+    private final NavigableMap<Long, CompressedBitmap>   byDay   = new TreeMap<>();
+
+    /**
+     * Constructor for an AppointmentIndex over <b>appts</b>.  The index follows every later change to the list.
+     *
+     * @param appts the Appointments to index
+     */
+    public AppointmentIndex(ObservableList<Appointment> appts) {
+        appts.forEach(this::add);
+        appts.addListener((ListChangeListener<Appointment>) change -> {
+            while (change.next()) {
+                change.getRemoved().forEach(this::remove);
+                change.getAddedSubList().forEach(this::add);
+            }
+        });
+    }
+
+    /**
+     * Returns every Appointment, as the starting point for a <i>not</i>.
+     *
+     * @return a bitmap of every Appointment
+     */
+    public CompressedBitmap all() {
+        return all;
+    }
+
+    /**
+     * Returns the Appointments of any of some Customers.
+     *
+     * @param customers the Customers
+     * @return a bitmap of the Customers' Appointments
+     */
+    public CompressedBitmap withCustomers(Collection<Customer> customers) {
+        final List<CompressedBitmap> found = new ArrayList<>(customers.size());
+        for (final Customer C : customers) {
+            final CompressedBitmap bits = byCustomer.get(C.getCustomerId());
+            if (bits != null)
+                found.add(bits);
+        }
+        return CompressedBitmap.orAll(found);
+    }
+
+    /**
+     * Returns the Appointments with a Contact.
+     *
+     * @param contactId the Contact's ID
+     * @return a bitmap of the Contact's Appointments
+     */
+    public CompressedBitmap withContact(int contactId) {
+        return orNone(byContact.get(contactId));
+    }
+
+    /**
+     * Returns the Appointments of a User.
+     *
+     * @param userId the User's ID
+     * @return a bitmap of the User's Appointments
+     */
+    public CompressedBitmap withUser(int userId) {
+        return orNone(byUser.get(userId));
+    }
+
+    /**
+     * Returns the Appointments of a Type.
+     *
+     * @param type the Type
+     * @return a bitmap of the Type's Appointments
+     */
+    public CompressedBitmap withType(String type) {
+        return orNone(byType.get(type));
+    }
+
+    /**
+     * Returns the Appointments starting on any day within a range.
+     *
+     * @param from The first day, inclusive
+     * @param to The last day, inclusive
+     * @return a bitmap of the Appointments starting in the range
+     */
+    public CompressedBitmap startingBetween(LocalDate from, LocalDate to) {
+        if (to.isBefore(from))
+            return NONE;
+        return CompressedBitmap.orAll(byDay.subMap(from.toEpochDay(), true, to.toEpochDay(), true).values());
+    }
+
+    /**
+     * Returns every Type in use, in alphabetical order.
+     *
+     * @return the Types
+     */
+    public List<String> getTypes() {
+        return new ArrayList<>(byType.keySet());
+    }
+
+    /**
+     * Looks up the Appointments in a bitmap.
+     *
+     * @param ids a bitmap built from this index
+     * @return the Appointments, in order of ID
+     */
+    public List<Appointment> lookup(CompressedBitmap ids) {
+        final List<Appointment> found = new ArrayList<>(ids.cardinality());
+        ids.forEach(id -> found.add(byId.get(id)));
+        return found;
+    }
+
+    private void add(Appointment appt) {
+        final int id = appt.getApptId();
+        byId.put(id, appt);
+        all.add(id);
+        bitsFor(byCustomer, appt.getCustomerId()).add(id);
+        bitsFor(byContact, appt.getContactId()).add(id);
+        bitsFor(byUser, appt.getUserId()).add(id);
+        byType.computeIfAbsent(typeOf(appt), type -> new CompressedBitmap()).add(id);
+        byDay.computeIfAbsent(dayOf(appt), day -> new CompressedBitmap()).add(id);
+    }
+
+    private void remove(Appointment appt) {
+        final int id = appt.getApptId();
+        if (byId.get(id) != appt)
+            return;
+
+        byId.remove(id);
+        all.remove(id);
+        clear(byCustomer, appt.getCustomerId(), id);
+        clear(byContact, appt.getContactId(), id);
+        clear(byUser, appt.getUserId(), id);
+        clear(byType, typeOf(appt), id);
+        clear(byDay, dayOf(appt), id);
+    }
+
+    private static String typeOf(Appointment appt) {
+        return appt.getType() == null ? "" : appt.getType();
+    }
+
+    private static Long dayOf(Appointment appt) {
+        return appt.getStart().toLocalDate().toEpochDay();
+    }
+
+    private static CompressedBitmap orNone(CompressedBitmap bits) {
+        return bits == null ? NONE : bits;
+    }
+
+    private static CompressedBitmap bitsFor(IntMap<CompressedBitmap> index, int key) {
+        CompressedBitmap bits = index.get(key);
+        if (bits == null) {
+            bits = new CompressedBitmap();
+            index.put(key, bits);
+        }
+        return bits;
+    }
+
+    private static void clear(IntMap<CompressedBitmap> index, int key, int id) {
+        final CompressedBitmap bits = index.get(key);
+        if (bits == null)
+            return;
+        bits.remove(id);
+        if (bits.isEmpty())
+            index.remove(key);
+    }
+
+    private static <K> void clear(NavigableMap<K, CompressedBitmap> index, K key, int id) {
+        final CompressedBitmap bits = index.get(key);
+        if (bits == null)
+            return;
+        bits.remove(id);
+        if (bits.isEmpty())
+            index.remove(key);
+    }
+}
@@ -0,0 +1,508 @@
+package util;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * A compressed set of non-negative <b>int</b>s, laid out like a Roaring bitmap.
+ * <br><br>
+ * Values are split by their high 16 bits into chunks of up to 65536.  A sparse chunk is held as a
+ * sorted array of its low 16 bits, two bytes per value; once it holds more than 4096 values it
+ * becomes a plain 8 KB bitmap instead, which is smaller from then on.  Intersections, unions and
+ * differences work a chunk at a time, skipping chunks only one side has, and run word-by-word on
+ * bitmap chunks, so combining bitmaps over millions of IDs takes microseconds to milliseconds.
+ * <br><br>
+ * Bitmaps are built by the indexes in this package.  Outside it they are read-only, and
+ * {@link #and}, {@link #or} and {@link #andNot} return new bitmaps.
+ *
+ * @author Jonathan Hawranko
+ */
+public class CompressedBitmap {
+    private static final int ARRAY_MAX = 4096;
+
+    private char[]      keys       = new char[4];
+    private Container[] containers = new Container[4];
+    private int         size;
+
+    /**
+     * Constructor for an empty CompressedBitmap.
+     */
+    public CompressedBitmap() {
+    }
+
+    private CompressedBitmap(int capacity) {
+        keys = new char[Math.max(4, capacity)];
+        containers = new Container[keys.length];
+    }
+
+    /**
+     * Checks whether a value is in the set.
+     *
+     * @param value the value
+     * @return true if present
+     */
+    public boolean contains(int value) {
+        final int i = find((char) (value >>> 16));
+        return i >= 0 && containers[i].contains((char) value);
+    }
+
+    /**
+     * Returns the number of values in the set.
+     *
+     * @return the cardinality
+     */
+    public int cardinality() {
+        int total = 0;
+        for (int i = 0; i < size; i++)
+            total += containers[i].cardinality();
+        return total;
+    }
+
+    /**
+     * Checks whether the set is empty.
+     *
+     * @return true if no values are present
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Runs an action on every value, in ascending order.
+     *
+     * @param action the action to run
+     */
+    public void forEach(IntConsumer action) {
+        for (int i = 0; i < size; i++)
+            containers[i].forEach(keys[i] << 16, action);
+    }
+
+    /**
+     * Returns the values in both this set and <b>other</b>.
+     *
+     * @param other the other set
+     * @return a new bitmap of the intersection
+     */
+    public CompressedBitmap and(CompressedBitmap other) {
+        final CompressedBitmap result = new CompressedBitmap(Math.min(size, other.size));
+        for (int i = 0, j = 0; i < size && j < other.size; ) {
+            if (keys[i] < other.keys[j])
+                i++;
+            else if (keys[i] > other.keys[j])
+                j++;
+            else {
+                result.append(keys[i], containers[i].and(other.containers[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the values in this set, <b>other</b>, or both.
+     *
+     * @param other the other set
+     * @return a new bitmap of the union
+     */
+    public CompressedBitmap or(CompressedBitmap other) {
+        final CompressedBitmap result = new CompressedBitmap(size + other.size);
+        int i = 0, j = 0;
+        while (i < size && j < other.size) {
+            if (keys[i] < other.keys[j]) {
+                result.append(keys[i], containers[i].copy());
+                i++;
+            }
+            else if (keys[i] > other.keys[j]) {
+                result.append(other.keys[j], other.containers[j].copy());
+                j++;
+            }
+            else {
+                result.append(keys[i], containers[i].or(other.containers[j]));
+                i++;
+                j++;
+            }
+        }
+        for (; i < size; i++)
+            result.append(keys[i], containers[i].copy());
+        for (; j < other.size; j++)
+            result.append(other.keys[j], other.containers[j].copy());
+        return result;
+    }
+
+    /**
+     * Returns the values in this set that are not in <b>other</b>.
+     *
+     * @param other the other set
+     * @return a new bitmap of the difference
+     */
+    public CompressedBitmap andNot(CompressedBitmap other) {
+        final CompressedBitmap result = new CompressedBitmap(size);
+        for (int i = 0, j = 0; i < size; i++) {
+            while (j < other.size && other.keys[j] < keys[i])
+                j++;
+            if (j < other.size && other.keys[j] == keys[i])
+                result.append(keys[i], containers[i].andNot(other.containers[j]));
+            else
+                result.append(keys[i], containers[i].copy());
+        }
+        return result;
+    }
+
+    /**
+     * Returns the union of many sets.  Cheaper than a chain of {@link #or} calls, as the
+     * result is built up in place.
+     *
+     * @param bitmaps the sets
+     * @return a new bitmap of the union
+     */
+    public static CompressedBitmap orAll(Iterable<CompressedBitmap> bitmaps) {
+        final CompressedBitmap result = new CompressedBitmap();
+        for (final CompressedBitmap B : bitmaps) {
+            for (int j = 0; j < B.size; j++) {
+                final int i = result.find(B.keys[j]);
+                if (i >= 0)
+                    result.containers[i] = result.containers[i].orInPlace(B.containers[j]);
+                else
+                    result.insert(-i - 1, B.keys[j], B.containers[j].copy());
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder out = new StringBuilder("{");
+        forEach(value -> out.append(out.length() > 1 ? ", " : "").append(value));
+        return out.append('}').toString();
+    }
+
+    /**
+     * Adds a value to the set.
+     *
+     * @param value the value, which must not be negative
+     */
+    void add(int value) {
+        if (value < 0)
+            throw new IllegalArgumentException("Negative value " + value);
+        final char high = (char) (value >>> 16);
+        final int i = find(high);
+        if (i >= 0)
+            containers[i] = containers[i].add((char) value);
+        else
+            insert(-i - 1, high, new ArrayContainer().add((char) value));
+    }
+
+    /**
+     * Removes a value from the set.
+     *
+     * @param value the value
+     */
+    void remove(int value) {
+        final int i = find((char) (value >>> 16));
+        if (i < 0)
+            return;
+        final Container C = containers[i].remove((char) value);
+        if (C.cardinality() == 0) {
+            System.arraycopy(keys, i + 1, keys, i, size - i - 1);
+            System.arraycopy(containers, i + 1, containers, i, size - i - 1);
+            containers[--size] = null;
+        }
+        else
+            containers[i] = C;
+    }
+
+    private int find(char high) {
+        int lo = 0, hi = size - 1;
+        while (lo <= hi) {
+            final int mid = (lo + hi) >>> 1;
+            if (keys[mid] < high)
+                lo = mid + 1;
+            else if (keys[mid] > high)
+                hi = mid - 1;
+            else
+                return mid;
+        }
+        return -(lo + 1);
+    }
+
+    private void insert(int at, char high, Container C) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            containers = Arrays.copyOf(containers, size * 2);
+        }
+        System.arraycopy(keys, at, keys, at + 1, size - at);
+        System.arraycopy(containers, at, containers, at + 1, size - at);
+        keys[at] = high;
+        containers[at] = C;
+        size++;
+    }
+
+    /**
+     * Appends a chunk with a higher key than any present.  The chunk must not be shared with
+     * another bitmap, as the indexes change their bitmaps' chunks in place.
+     */
+    private void append(char high, Container C) {
+        if (C.cardinality() == 0)
+            return;
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            containers = Arrays.copyOf(containers, size * 2);
+        }
+        keys[size] = high;
+        containers[size++] = C;
+    }
+
+    /**
+     * The low 16 bits of the values in one chunk.  Operations return the resulting chunk, which
+     * may be this one, a new one, or one of another kind.  Only {@link #add}, {@link #remove} and
+     * {@link #orInPlace} may change this chunk.
+     */
+    private abstract static class Container {
+        abstract boolean contains(char low);
+        abstract int cardinality();
+        abstract void forEach(int high, IntConsumer action);
+        abstract Container add(char low);
+        abstract Container remove(char low);
+        abstract Container and(Container other);
+        abstract Container or(Container other);
+        abstract Container andNot(Container other);
+        abstract Container orInPlace(Container other);
+        abstract Container copy();
+    }
+
+    private static final class ArrayContainer extends Container {
+        char[] values;
+        int    count;
+
+        ArrayContainer() {
+            this(new char[4], 0);
+        }
+
+        ArrayContainer(char[] values, int count) {
+            this.values = values;
+            this.count = count;
+        }
+
+        @Override
+        boolean contains(char low) {
+            return Arrays.binarySearch(values, 0, count, low) >= 0;
+        }
+
+        @Override
+        int cardinality() {
+            return count;
+        }
+
+        @Override
+        void forEach(int high, IntConsumer action) {
+            for (int i = 0; i < count; i++)
+                action.accept(high | values[i]);
+        }
+
+        @Override
+        Container add(char low) {
+            final int i = Arrays.binarySearch(values, 0, count, low);
+            if (i >= 0)
+                return this;
+            if (count == ARRAY_MAX)
+                return toBitmap().add(low);
+            if (count == values.length)
+                values = Arrays.copyOf(values, Math.min(ARRAY_MAX, count * 2));
+            final int at = -i - 1;
+            System.arraycopy(values, at, values, at + 1, count - at);
+            values[at] = low;
+            count++;
+            return this;
+        }
+
+        @Override
+        Container remove(char low) {
+            final int i = Arrays.binarySearch(values, 0, count, low);
+            if (i >= 0) {
+                System.arraycopy(values, i + 1, values, i, count - i - 1);
+                count--;
+            }
+            return this;
+        }
+
+        @Override
+        Container and(Container other) {
+            final char[] kept = new char[count];
+            int n = 0;
+            for (int i = 0; i < count; i++)
+                if (other.contains(values[i]))
+                    kept[n++] = values[i];
+            return new ArrayContainer(kept, n);
+        }
+
+        @Override
+        Container or(Container other) {
+            if (other instanceof BitmapContainer)
+                return other.or(this);
+
+            final ArrayContainer A = (ArrayContainer) other;
+            if (count + A.count > ARRAY_MAX)
+                return toBitmap().orInPlace(A);
+
+            final char[] merged = new char[count + A.count];
+            int i = 0, j = 0, n = 0;
+            while (i < count && j < A.count) {
+                if (values[i] < A.values[j])
+                    merged[n++] = values[i++];
+                else if (values[i] > A.values[j])
+                    merged[n++] = A.values[j++];
+                else {
+                    merged[n++] = values[i++];
+                    j++;
+                }
+            }
+            while (i < count)
+                merged[n++] = values[i++];
+            while (j < A.count)
+                merged[n++] = A.values[j++];
+            return new ArrayContainer(merged, n);
+        }
+
+        @Override
+        Container andNot(Container other) {
+            final char[] kept = new char[count];
+            int n = 0;
+            for (int i = 0; i < count; i++)
+                if (!other.contains(values[i]))
+                    kept[n++] = values[i];
+            return new ArrayContainer(kept, n);
+        }
+
+        @Override
+        Container orInPlace(Container other) {
+            return or(other);
+        }
+
+        @Override
+        Container copy() {
+            return new ArrayContainer(Arrays.copyOf(values, Math.max(4, count)), count);
+        }
+
+        BitmapContainer toBitmap() {
+            final BitmapContainer B = new BitmapContainer();
+            for (int i = 0; i < count; i++)
+                B.words[values[i] >>> 6] |= 1L << values[i];
+            B.count = count;
+            return B;
+        }
+    }
+
+    private static final class BitmapContainer extends Container {
+        final long[] words = new long[1024];
+        int          count;
+
+        @Override
+        boolean contains(char low) {
+            return (words[low >>> 6] & (1L << low)) != 0;
+        }
+
+        @Override
+        int cardinality() {
+            return count;
+        }
+
+        @Override
+        void forEach(int high, IntConsumer action) {
+            for (int w = 0; w < words.length; w++) {
+                for (long word = words[w]; word != 0; word &= word - 1)
+                    action.accept(high | (w << 6) | Long.numberOfTrailingZeros(word));
+            }
+        }
+
+        @Override
+        Container add(char low) {
+            final long bit = 1L << low;
+            if ((words[low >>> 6] & bit) == 0) {
+                words[low >>> 6] |= bit;
+                count++;
+            }
+            return this;
+        }
+
+        @Override
+        Container remove(char low) {
+            final long bit = 1L << low;
+            if ((words[low >>> 6] & bit) != 0) {
+                words[low >>> 6] &= ~bit;
+                count--;
+            }
+            return count > ARRAY_MAX ? this : toArray();
+        }
+
+        @Override
+        Container and(Container other) {
+            if (other instanceof ArrayContainer)
+                return other.and(this);
+
+            final BitmapContainer B = (BitmapContainer) other;
+            final BitmapContainer result = new BitmapContainer();
+            for (int w = 0; w < words.length; w++)
+                result.count += Long.bitCount(result.words[w] = words[w] & B.words[w]);
+            return result.count > ARRAY_MAX ? result : result.toArray();
+        }
+
+        @Override
+        Container or(Container other) {
+            return copy().orInPlace(other);
+        }
+
+        @Override
+        Container andNot(Container other) {
+            final BitmapContainer result = (BitmapContainer) copy();
+            if (other instanceof ArrayContainer) {
+                final ArrayContainer A = (ArrayContainer) other;
+                for (int i = 0; i < A.count; i++) {
+                    final long bit = 1L << A.values[i];
+                    if ((result.words[A.values[i] >>> 6] & bit) != 0) {
+                        result.words[A.values[i] >>> 6] &= ~bit;
+                        result.count--;
+                    }
+                }
+                return result.count > ARRAY_MAX ? result : result.toArray();
+            }
+
+            final BitmapContainer B = (BitmapContainer) other;
+            result.count = 0;
+            for (int w = 0; w < words.length; w++)
+                result.count += Long.bitCount(result.words[w] &= ~B.words[w]);
+            return result.count > ARRAY_MAX ? result : result.toArray();
+        }
+
+        @Override
+        Container orInPlace(Container other) {
+            if (other instanceof ArrayContainer) {
+                final ArrayContainer A = (ArrayContainer) other;
+                for (int i = 0; i < A.count; i++)
+                    add(A.values[i]);
+                return this;
+            }
+
+            final BitmapContainer B = (BitmapContainer) other;
+            count = 0;
+            for (int w = 0; w < words.length; w++)
+                count += Long.bitCount(words[w] |= B.words[w]);
+            return this;
+        }
+
+        @Override
+        Container copy() {
+            final BitmapContainer B = new BitmapContainer();
+            System.arraycopy(words, 0, B.words, 0, words.length);
+            B.count = count;
+            return B;
+        }
+
+        ArrayContainer toArray() {
+            final char[] values = new char[Math.max(4, count)];
+            final int[] n = { 0 };
+            forEach(0, value -> values[n[0]++] = (char) value);
+            return new ArrayContainer(values, count);
+        }
+    }
+}
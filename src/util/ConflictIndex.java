@@ -0,0 +1,126 @@
+package util;
+
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import model.Appointment;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Index of Appointment times by Customer, Contact, and User, for finding scheduling conflicts.
+ * <br><br>
+ * Each Customer, Contact, and User has an {@link IntervalTree} of their Appointments.  The index
+ * listens to the list it was built from, so it stays current as Appointments are inserted, updated,
+ * and deleted, and a conflict check costs O(log n) in the size of one party's history rather than
+ * a scan of every Appointment.
+ *
+ * @author Jonathan Hawranko
+ */
+public class ConflictIndex {
+    private final IntMap<IntervalTree<Appointment>> byCustomer = new IntMap<>();
+    private final IntMap<IntervalTree<Appointment>> byContact  = new IntMap<>();
+    private final IntMap<IntervalTree<Appointment>> byUser     = new IntMap<>();
+
+    /**
+     * Constructor for a ConflictIndex over <b>appts</b>.  The index follows every later change to the list.
+     *
+     * @param appts the Appointments to index
+     */
+    public ConflictIndex(ObservableList<Appointment> appts) {
+        appts.forEach(this::add);
+        appts.addListener((ListChangeListener<Appointment>) change -> {
+            while (change.next()) {
+                change.getRemoved().forEach(this::remove);
+                change.getAddedSubList().forEach(this::add);
+            }
+        });
+    }
+
+    /**
+     * Finds an Appointment of the same Customer that overlaps <b>toCheck</b>, other than <b>toCheck</b> itself.
+     *
+     * @param toCheck the appointment to check
+     * @return an overlapping Appointment, or null if there is none
+     */
+    public Appointment findCustomerConflict(Appointment toCheck) {
+        return findConflict(byCustomer, toCheck.getCustomerId(), toCheck);
+    }
+
+    /**
+     * Finds an Appointment of the same Contact that overlaps <b>toCheck</b>, other than <b>toCheck</b> itself.
+     *
+     * @param toCheck the appointment to check
+     * @return an overlapping Appointment, or null if there is none
+     */
+    public Appointment findContactConflict(Appointment toCheck) {
+        return findConflict(byContact, toCheck.getContactId(), toCheck);
+    }
+
+    /**
+     * Finds an Appointment of the same User that overlaps <b>toCheck</b>, other than <b>toCheck</b> itself.
+     *
+     * @param toCheck the appointment to check
+     * @return an overlapping Appointment, or null if there is none
+     */
+    public Appointment findUserConflict(Appointment toCheck) {
+        return findConflict(byUser, toCheck.getUserId(), toCheck);
+    }
+
+    /**
+     * Returns a Customer's Appointments, in order of start time.
+     *
+     * @param customerId the Customer's ID
+     * @return the Customer's Appointments, or an empty list if there are none
+     */
+    public List<Appointment> getCustomerAppointments(int customerId) {
+        final IntervalTree<Appointment> tree = byCustomer.get(customerId);
+        return tree == null ? Collections.emptyList() : tree.values();
+    }
+
+    private static Appointment findConflict(IntMap<IntervalTree<Appointment>> index, int partyId, Appointment toCheck) {
+        final IntervalTree<Appointment> tree = index.get(partyId);
+        if (tree == null)
+            return null;
+        return tree.findOverlap(keyOf(toCheck.getStart()), keyOf(toCheck.getEnd()), toCheck.getApptId());
+    }
+
+    private void add(Appointment appt) {
+        add(byCustomer, appt.getCustomerId(), appt);
+        add(byContact, appt.getContactId(), appt);
+        add(byUser, appt.getUserId(), appt);
+    }
+
+    private void remove(Appointment appt) {
+        remove(byCustomer, appt.getCustomerId(), appt);
+        remove(byContact, appt.getContactId(), appt);
+        remove(byUser, appt.getUserId(), appt);
+    }
+
+    private static void add(IntMap<IntervalTree<Appointment>> index, int partyId, Appointment appt) {
+        IntervalTree<Appointment> tree = index.get(partyId);
+        if (tree == null) {
+            tree = new IntervalTree<>();
+            index.put(partyId, tree);
+        }
+        tree.insert(keyOf(appt.getStart()), keyOf(appt.getEnd()), appt.getApptId(), appt);
+    }
+
+    private static void remove(IntMap<IntervalTree<Appointment>> index, int partyId, Appointment appt) {
+        final IntervalTree<Appointment> tree = index.get(partyId);
+        if (tree == null)
+            return;
+        tree.remove(keyOf(appt.getStart()), appt.getApptId());
+        if (tree.size() == 0)
+            index.remove(partyId);
+    }
+
+    /**
+     * Encodes a local date-time as a number that sorts in the same order.
+     */
+    private static long keyOf(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,118 @@
+package util;
+
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import model.Country;
+import model.Customer;
+import model.Division;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Index of Customers by Division and Country, for filtering.
+ * <br><br>
+ * Each Division and Country has a bitmap of its Customers' IDs.  Finding the Customers of a
+ * Division or Country, or of both at once by intersecting their bitmaps, visits only the
+ * matching Customers rather than every Customer and its Division.  Like {@link ConflictIndex},
+ * the index listens to the list it was built from and stays current as Customers are inserted,
+ * updated, and deleted.
+ *
+ * @author Jonathan Hawranko
+ */
+public class CustomerIndex {
+    private final IntMap<Customer> byId       = new IntMap<>();
+    private final IntMap<Division> indexedAs  = new IntMap<>(); // by customer ID, as of the last index
+    private final IntMap<BitSet>   byDivision = new IntMap<>();
+    private final IntMap<BitSet>   byCountry  = new IntMap<>();
+
+    /**
+     * Constructor for a CustomerIndex over <b>customers</b>.  The index follows every later change to the list.
+     *
+     * @param customers the Customers to index
+     */
+    public CustomerIndex(ObservableList<Customer> customers) {
+        customers.forEach(this::add);
+        customers.addListener((ListChangeListener<Customer>) change -> {
+            while (change.next()) {
+                change.getRemoved().forEach(this::remove);
+                change.getAddedSubList().forEach(this::add);
+            }
+        });
+    }
+
+    /**
+     * Finds the Customers of a Division, of a Country, or of both, in order of ID.
+     *
+     * @param country Country to filter by, or null
+     * @param division Division to filter by, or null
+     * @return the matching Customers, or an empty list if neither is given
+     */
+    public List<Customer> find(Country country, Division division) {
+        BitSet ids = null;
+        if (division != null)
+            ids = intersect(ids, byDivision.get(division.getDivisionId()));
+        if (country != null)
+            ids = intersect(ids, byCountry.get(country.getCountryId()));
+        if (ids == null || ids.isEmpty())
+            return Collections.emptyList();
+
+        final List<Customer> found = new ArrayList<>(ids.cardinality());
+        for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1))
+            found.add(byId.get(id));
+        return found;
+    }
+
+    private static BitSet intersect(BitSet ids, BitSet with) {
+        if (with == null)
+            return new BitSet();
+        if (ids == null)
+            return (BitSet) with.clone();
+        ids.and(with);
+        return ids;
+    }
+
+    private void add(Customer customer) {
+        final int id = customer.getCustomerId();
+        final Division division = customer.getDivision();
+        byId.put(id, customer);
+        indexedAs.put(id, division);
+        bitsFor(byDivision, division.getDivisionId()).set(id);
+        bitsFor(byCountry, division.getCountryId()).set(id);
+    }
+
+    /**
+     * Removes a Customer under the Division it was indexed with, which may no longer be its
+     * Division if it was edited in place.
+     */
+    private void remove(Customer customer) {
+        final int id = customer.getCustomerId();
+        if (byId.get(id) != customer)
+            return;
+
+        final Division division = indexedAs.remove(id);
+        byId.remove(id);
+        clear(byDivision, division.getDivisionId(), id);
+        clear(byCountry, division.getCountryId(), id);
+    }
+
+    private static BitSet bitsFor(IntMap<BitSet> index, int key) {
+        BitSet bits = index.get(key);
+        if (bits == null) {
+            bits = new BitSet();
+            index.put(key, bits);
+        }
+        return bits;
+    }
+
+    private static void clear(IntMap<BitSet> index, int key, int id) {
+        final BitSet bits = index.get(key);
+        if (bits == null)
+            return;
+        bits.clear(id);
+        if (bits.isEmpty())
+            index.remove(key);
+    }
+}
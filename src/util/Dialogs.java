@@ -1,5 +1,6 @@
 package util;
 
+import javafx.application.Platform;
 import javafx.scene.control.Alert;
 import javafx.scene.control.ButtonType;
 
@@ -34,7 +35,8 @@ public abstract class Dialogs {
     /**
      * Alerts the user.  An alert can be of any <code>AlertType</code>.  Alerts will
      * not be blocking, meaning the program will continue running while the Alert is
-     * displayed.
+     * displayed.  May be called from any thread; the Alert is always shown on the
+     * JavaFX Application Thread.
      *
      * @param type <code>AlertType</code> of the Alert
      * @param title Title shown on Alert
@@ -42,6 +44,11 @@ public abstract class Dialogs {
      * @param message Message displayed on Alert
      */
     public static void alertUser(Alert.AlertType type, String title, String header, String message) {
+        if (!Platform.isFxApplicationThread()) {
+            Platform.runLater(() -> alertUser(type, title, header, message));
+            return;
+        }
+
         Alert prompt = new Alert(type);
         prompt.setTitle(title);
         prompt.setHeaderText(header);
@@ -0,0 +1,77 @@
+package util;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import javafx.collections.WeakListChangeListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * A live, filtered view of a list, filled from an index.
+ * <br><br>
+ * Unlike a <i>FilteredList</i>, changing the filter does not test every row of the source.  The
+ * caller passes the rows that match, found with an index such as {@link CustomerIndex}, along with
+ * the filter's predicate, and the view is replaced with them in a single change event.  After that,
+ * only rows added to or removed from the source are tested, so the view follows later changes
+ * without being rebuilt.
+ *
+ * @param <T> the type of row
+ * @author Jonathan Hawranko
+ */
+public class IndexedList<T> {
+    private final ObservableList<T>     view = FXCollections.observableArrayList();
+    private final ListChangeListener<T> follower;
+    private Predicate<? super T>        filter = row -> false;
+
+    /**
+     * Constructor for an empty IndexedList over <b>source</b>.  The view follows every later change
+     * to the source for as long as the IndexedList is reachable.
+     *
+     * @param source the list to view
+     */
+    public IndexedList(ObservableList<T> source) {
+        this.follower = change -> {
+            while (change.next()) {
+                if (change.wasRemoved()) {
+                    final Set<T> removed = Collections.newSetFromMap(new IdentityHashMap<>());
+                    removed.addAll(change.getRemoved());
+                    view.removeAll(removed);
+                }
+                if (change.wasAdded()) {
+                    final List<T> added = new ArrayList<>();
+                    for (final T row : change.getAddedSubList())
+                        if (filter.test(row))
+                            added.add(row);
+                    view.addAll(added);
+                }
+            }
+        };
+        source.addListener(new WeakListChangeListener<>(follower));
+    }
+
+    /**
+     * Returns the view, for use as the items of a table or as the source of a <i>SortedList</i>.
+     *
+     * @return the filtered view
+     */
+    public ObservableList<T> getView() {
+        return view;
+    }
+
+    /**
+     * Changes the filter.
+     *
+     * @param filter predicate matching the rows to show, tested against rows added to the source later
+     * @param matches the rows of the source that match <b>filter</b> now
+     */
+    public void setFilter(Predicate<? super T> filter, List<T> matches) {
+        this.filter = filter;
+        view.setAll(matches);
+    }
+}
@@ -0,0 +1,235 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * An augmented interval tree of half-open intervals [start, end).
+ * <br><br>
+ * Intervals are kept in a balanced (AVL) tree ordered by start, then by ID, and each node
+ * records the latest end in its subtree.  Subtrees that end before a query begins, or start
+ * after it ends, are skipped, so finding the intervals overlapping a range costs
+ * O(log n + k) for k matches.  Inserting and removing cost O(log n).
+ *
+ * @param <V> the type of value held with each interval
+ * @author Jonathan Hawranko
+ */
+public class IntervalTree<V> {
+    private Node<V> root;
+    private int     size;
+
+    private static final class Node<V> {
+        final long start;
+        final long end;
+        final int  id;
+        final V    value;
+        long    maxEnd;
+        int     height = 1;
+        Node<V> left;
+        Node<V> right;
+
+        Node(long start, long end, int id, V value) {
+            this.start = start;
+            this.end = end;
+            this.id = id;
+            this.value = value;
+            this.maxEnd = end;
+        }
+    }
+
+    /**
+     * Adds an interval.  The pair (start, id) must be unique within the tree.
+     *
+     * @param start the start of the interval, inclusive
+     * @param end the end of the interval, exclusive
+     * @param id a unique ID for the interval
+     * @param value the value held with the interval
+     */
+    public void insert(long start, long end, int id, V value) {
+        root = insert(root, new Node<>(start, end, id, value));
+    }
+
+    /**
+     * Removes an interval.
+     *
+     * @param start the start the interval was inserted with
+     * @param id the ID the interval was inserted with
+     * @return true if the interval was found and removed
+     */
+    public boolean remove(long start, int id) {
+        final int before = size;
+        root = remove(root, start, id);
+        return size < before;
+    }
+
+    /**
+     * Finds any interval overlapping [start, end), other than the interval with ID <b>excludeId</b>.
+     *
+     * @param start the start of the range, inclusive
+     * @param end the end of the range, exclusive
+     * @param excludeId the ID of an interval to ignore, such as the one being checked
+     * @return the value of an overlapping interval, or null if there is none
+     */
+    public V findOverlap(long start, long end, int excludeId) {
+        return findOverlap(root, start, end, excludeId);
+    }
+
+    /**
+     * Runs an action on the value of every interval overlapping [start, end), in start order.
+     *
+     * @param start the start of the range, inclusive
+     * @param end the end of the range, exclusive
+     * @param action the action to run
+     */
+    public void forEachOverlap(long start, long end, Consumer<? super V> action) {
+        forEachOverlap(root, start, end, action);
+    }
+
+    /**
+     * Returns the values of every interval, in start order.
+     *
+     * @return all values
+     */
+    public List<V> values() {
+        final List<V> values = new ArrayList<>(size);
+        forEachOverlap(Long.MIN_VALUE, Long.MAX_VALUE, values::add);
+        return values;
+    }
+
+    /**
+     * Returns the number of intervals.
+     *
+     * @return the size
+     */
+    public int size() {
+        return size;
+    }
+
+    private V findOverlap(Node<V> n, long start, long end, int excludeId) {
+        if (n == null || n.maxEnd <= start)
+            return null;
+
+        final V left = findOverlap(n.left, start, end, excludeId);
+        if (left != null)
+            return left;
+        if (n.start >= end)
+            return null;
+        if (n.end > start && n.id != excludeId)
+            return n.value;
+        return findOverlap(n.right, start, end, excludeId);
+    }
+
+    private void forEachOverlap(Node<V> n, long start, long end, Consumer<? super V> action) {
+        if (n == null || n.maxEnd <= start)
+            return;
+
+        forEachOverlap(n.left, start, end, action);
+        if (n.start >= end)
+            return;
+        if (n.end > start)
+            action.accept(n.value);
+        forEachOverlap(n.right, start, end, action);
+    }
+
+    private static int compare(long start, int id, Node<?> n) {
+        final int c = Long.compare(start, n.start);
+        return c != 0 ? c : Integer.compare(id, n.id);
+    }
+
+    private Node<V> insert(Node<V> n, Node<V> added) {
+        if (n == null) {
+            size++;
+            return added;
+        }
+        final int c = compare(added.start, added.id, n);
+        if (c < 0)
+            n.left = insert(n.left, added);
+        else if (c > 0)
+            n.right = insert(n.right, added);
+        else
+            throw new IllegalArgumentException("Interval already present: " + added.id);
+        return balance(n);
+    }
+
+    private Node<V> remove(Node<V> n, long start, int id) {
+        if (n == null)
+            return null;
+        final int c = compare(start, id, n);
+        if (c < 0)
+            n.left = remove(n.left, start, id);
+        else if (c > 0)
+            n.right = remove(n.right, start, id);
+        else {
+            size--;
+            if (n.left == null)
+                return n.right;
+            if (n.right == null)
+                return n.left;
+
+            // replace with the smallest node of the right subtree
+            Node<V> successor = n.right;
+            while (successor.left != null)
+                successor = successor.left;
+            successor.right = removeMin(n.right);
+            successor.left = n.left;
+            return balance(successor);
+        }
+        return balance(n);
+    }
+
+    private Node<V> removeMin(Node<V> n) {
+        if (n.left == null)
+            return n.right;
+        n.left = removeMin(n.left);
+        return balance(n);
+    }
+
+    private static int height(Node<?> n) {
+        return n == null ? 0 : n.height;
+    }
+
+    private static void update(Node<?> n) {
+        n.height = 1 + Math.max(height(n.left), height(n.right));
+        long maxEnd = n.end;
+        if (n.left != null && n.left.maxEnd > maxEnd)
+            maxEnd = n.left.maxEnd;
+        if (n.right != null && n.right.maxEnd > maxEnd)
+            maxEnd = n.right.maxEnd;
+        n.maxEnd = maxEnd;
+    }
+
+    private Node<V> balance(Node<V> n) {
+        update(n);
+        final int skew = height(n.left) - height(n.right);
+        if (skew > 1) {
+            if (height(n.left.left) < height(n.left.right))
+                n.left = rotateLeft(n.left);
+            return rotateRight(n);
+        }
+        if (skew < -1) {
+            if (height(n.right.right) < height(n.right.left))
+                n.right = rotateRight(n.right);
+            return rotateLeft(n);
+        }
+        return n;
+    }
+
+    private Node<V> rotateRight(Node<V> n) {
+        final Node<V> l = n.left;
+        n.left = l.right;
+        l.right = n;
+        update(n);
+        update(l);
+        return l;
+    }
+
+    private Node<V> rotateLeft(Node<V> n) {
+        final Node<V> r = n.right;
+        n.right = r.left;
+        r.left = n;
+        update(n);
+        update(r);
+        return r;
+    }
+}
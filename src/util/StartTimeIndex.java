@@ -0,0 +1,94 @@
+package util;
+
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import model.Appointment;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Index of Appointments by start time, for range queries.
+ * <br><br>
+ * Appointments are kept in a <i>TreeMap</i> of start times to the Appointments starting then, so
+ * finding those that start in a range costs O(log n + k) for k results, rather than a scan of
+ * every Appointment.  Like {@link ConflictIndex}, the index listens to the list it was built from
+ * and stays current as Appointments are inserted, updated, and deleted.
+ *
+ * @author Jonathan Hawranko
+ */
+public class StartTimeIndex {
+    private final NavigableMap<Long, List<Appointment>> byStart = new TreeMap<>();
+
+    /**
+     * Constructor for a StartTimeIndex over <b>appts</b>.  The index follows every later change to the list.
+     *
+     * @param appts the Appointments to index
+     */
+    public StartTimeIndex(ObservableList<Appointment> appts) {
+        appts.forEach(this::add);
+        appts.addListener((ListChangeListener<Appointment>) change -> {
+            while (change.next()) {
+                change.getRemoved().forEach(this::remove);
+                change.getAddedSubList().forEach(this::add);
+            }
+        });
+    }
+
+    /**
+     * Finds the Appointments starting within a range of time, in order of start time.
+     *
+     * @param from The earliest start time, inclusive
+     * @param to The latest start time, exclusive
+     * @return the Appointments starting in the range
+     */
+    public List<Appointment> findStartingBetween(LocalDateTime from, LocalDateTime to) {
+        final List<Appointment> found = new ArrayList<>();
+        if (from.isBefore(to))
+            byStart.subMap(keyOf(from), true, keyOf(to), false).values().forEach(found::addAll);
+        return found;
+    }
+
+    /**
+     * Finds the first Appointment of a User starting within a range of time.
+     *
+     * @param userId The User's ID
+     * @param from The earliest start time, inclusive
+     * @param to The latest start time, exclusive
+     * @return the User's earliest Appointment in the range, or null if there is none
+     */
+    public Appointment findFirstStartingBetween(int userId, LocalDateTime from, LocalDateTime to) {
+        if (!from.isBefore(to))
+            return null;
+        for (final List<Appointment> bucket : byStart.subMap(keyOf(from), true, keyOf(to), false).values())
+            for (final Appointment A : bucket)
+                if (A.getUserId() == userId)
+                    return A;
+        return null;
+    }
+
+    private void add(Appointment appt) {
+        byStart.computeIfAbsent(keyOf(appt.getStart()), start -> new ArrayList<>(1)).add(appt);
+    }
+
+    private void remove(Appointment appt) {
+        final Long key = keyOf(appt.getStart());
+        final List<Appointment> bucket = byStart.get(key);
+        if (bucket == null)
+            return;
+        bucket.remove(appt);
+        if (bucket.isEmpty())
+            byStart.remove(key);
+    }
+
+    /**
+     * Encodes a local date-time as a number that sorts in the same order.
+     */
+    private static long keyOf(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+}
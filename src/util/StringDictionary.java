@@ -0,0 +1,105 @@
+package util;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded dictionary of the distinct values of a column, used to share one String per value
+ * among all the rows that hold it.
+ * <br><br>
+ * Columns such as an Appointment's Type or Created_By have only a few dozen distinct values
+ * across many thousands of rows.  Routing each value read through {@link #intern} swaps the
+ * String the driver built for the one already held, and the driver's copy is discarded young.
+ * Once the dictionary holds <b>capacity</b> values, new values are passed through unchanged, so
+ * a column that turns out to be mostly unique cannot grow it without limit.  Hits and misses are
+ * counted.
+ *
+ * @author Jonathan Hawranko
+ */
+public class StringDictionary {
+    private final Map<String, String> values = new ConcurrentHashMap<>();
+    private final int        capacity;
+    private final AtomicLong hits   = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Constructor for an empty StringDictionary.
+     *
+     * @param capacity the most distinct values held
+     */
+    public StringDictionary(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Returns the String held for <b>value</b>, adding <b>value</b> itself if there is none and
+     * the dictionary is not full.
+     *
+     * @param value the value read, or null
+     * @return an equal String, shared where possible
+     */
+    public String intern(String value) {
+        if (value == null)
+            return null;
+
+        final String held = values.get(value);
+        if (held != null) {
+            hits.incrementAndGet();
+            return held;
+        }
+
+        misses.incrementAndGet();
+        if (values.size() >= capacity)
+            return value;
+        final String raced = values.putIfAbsent(value, value);
+        return raced == null ? value : raced;
+    }
+
+    /**
+     * Returns the number of distinct values held.
+     *
+     * @return the dictionary size
+     */
+    public int size() {
+        return values.size();
+    }
+
+    /**
+     * Returns how many values were found already held.
+     *
+     * @return the hit count
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Returns how many values were not already held.
+     *
+     * @return the miss count
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Returns the fraction of values that were found already held.
+     *
+     * @return the hit rate, from 0 to 1, or 0 if nothing has been interned
+     */
+    public double getHitRate() {
+        final long found = getHits(), total = found + getMisses();
+        return total == 0 ? 0 : (double) found / total;
+    }
+
+    /**
+     * Returns the size and the hit rate.
+     *
+     * @return a summary of the dictionary's counters
+     */
+    @Override
+    public String toString() {
+        return String.format("%d values, %.1f%% hits", size(), getHitRate() * 100);
+    }
+}
@@ -3,12 +3,12 @@ package util;
 import exceptions.SchedulingException;
 import model.Appointment;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Class for working with Time.
@@ -46,6 +46,26 @@ public abstract class Time {
         return hr + ':' + min;
     }
 
+    /**
+     * Returns the first day of the week (Sunday) containing <b>date</b>.
+     *
+     * @param date any date
+     * @return the Sunday on or before <b>date</b>
+     */
+    public static LocalDate startOfWeek(LocalDate date) {
+        return date.minusDays(date.getDayOfWeek().getValue() % 7);
+    }
+
+    /**
+     * Returns the first day of the month containing <b>date</b>.
+     *
+     * @param date any date
+     * @return the first of the month
+     */
+    public static LocalDate startOfMonth(LocalDate date) {
+        return date.withDayOfMonth(1);
+    }
+
     /**
      * Checks if a Time is within the business hours of 8AM - 10PM EST.
      *
@@ -90,10 +110,9 @@ public abstract class Time {
      * scheduling conflict exists, a <b>SchedulingException</b> is thrown.
      *
      * <br><br>
-     * A lambda function is used to iterate over <b>custAppts</b>, checking for
-     * appointments with overlapping times with the appointment <b>toCheck</b>.  If
-     * an overlap is found, an <i>AtomicBoolean</i> is set true.  The <i>.forEach</i> method takes a
-     * <i>Consumer</i>, which is executed against each item in the list.<br>
+     * A lambda function is used to search <b>custAppts</b> for an appointment with
+     * times overlapping the appointment <b>toCheck</b>.  The <i>.anyMatch</i> method takes a
+     * <i>Predicate</i>, and stops at the first item in the list that matches it.<br>
      * 
      * @see #isWithinBusinessHours(LocalDateTime)
      * @see #timeOverlaps(Appointment, Appointment)
@@ -102,6 +121,72 @@ public abstract class Time {
      * @throws SchedulingException if there is a scheduling conflict
      */
     public static void checkForSchedulingErrors(Appointment toCheck, List<Appointment> custAppts)  throws SchedulingException {
+        checkTimes(toCheck);
+
+        // check customer appointments for overlap, stopping at the first
+        if (custAppts.stream().anyMatch(a -> a.getApptId() != toCheck.getApptId() && Time.timeOverlaps(a, toCheck)))
+            throw customerConflict();
+    }
+
+    /**
+     * Checks if an Appointment has any scheduling errors, finding overlaps through a
+     * <b>ConflictIndex</b> rather than scanning appointments.  Besides the checks made by
+     * {@link #checkForSchedulingErrors(Appointment, List)}, the appointment's contact and
+     * user must not be double-booked, even with another customer.
+     * If a scheduling conflict exists, a <b>SchedulingException</b> is thrown.
+     *
+     * @param toCheck the appointment to check
+     * @param conflicts an index of all existing appointments
+     * @throws SchedulingException if there is a scheduling conflict
+     */
+    public static void checkForSchedulingErrors(Appointment toCheck, ConflictIndex conflicts)  throws SchedulingException {
+        checkTimes(toCheck);
+
+        if (conflicts.findCustomerConflict(toCheck) != null)
+            throw customerConflict();
+        else if (conflicts.findContactConflict(toCheck) != null)
+            throw contactConflict();
+        else if (conflicts.findUserConflict(toCheck) != null)
+            throw userConflict();
+    }
+
+    /**
+     * Checks if an Appointment has any scheduling errors, given which of its parties
+     * already have an overlapping appointment.  Used with the result of
+     * <i>JDBC.findSchedulingConflicts</i>, when the check is made by the database.
+     * If a scheduling conflict exists, a <b>SchedulingException</b> is thrown.
+     *
+     * @param toCheck the appointment to check
+     * @param conflicts whether the customer, contact, and user, in that order, have an overlapping appointment
+     * @throws SchedulingException if there is a scheduling conflict
+     */
+    public static void checkForSchedulingErrors(Appointment toCheck, boolean[] conflicts)  throws SchedulingException {
+        checkTimes(toCheck);
+
+        if (conflicts[0])
+            throw customerConflict();
+        else if (conflicts[1])
+            throw contactConflict();
+        else if (conflicts[2])
+            throw userConflict();
+    }
+
+    private static SchedulingException customerConflict() {
+        return new SchedulingException("This appointment's time overlaps with an existing appointment.","Scheduling Conflict");
+    }
+
+    private static SchedulingException contactConflict() {
+        return new SchedulingException("This appointment's contact already has an appointment at this time.","Contact Double-Booked");
+    }
+
+    private static SchedulingException userConflict() {
+        return new SchedulingException("This appointment's user already has an appointment at this time.","User Double-Booked");
+    }
+
+    /**
+     * Checks an Appointment's start and end times on their own, without regard to other appointments.
+     */
+    private static void checkTimes(Appointment toCheck) throws SchedulingException {
         if (toCheck.getStart().isAfter(toCheck.getEnd()))
             throw new SchedulingException("This appointment's start time must be before its end time.","Start Time before End Time");
 
@@ -116,15 +201,5 @@ public abstract class Time {
 
         else if (!Time.isWithinBusinessHours(toCheck.getEnd()))
             throw new SchedulingException("This appointment's end time is outside of business hours (8:00 a.m. - 10:00 p.m. EST).","Outside of Business Hours");
-
-        // check all customer appointments for overlap
-        AtomicBoolean overlap = new AtomicBoolean(false);
-        custAppts.forEach(a -> {
-            if (a.getApptId() != toCheck.getApptId() && Time.timeOverlaps(a, toCheck))
-                overlap.set(true);
-        });
-
-        if (overlap.get())
-            throw new SchedulingException("This appointment's time overlaps with an existing appointment.","Scheduling Conflict");
     }
 }
@@ -0,0 +1,129 @@
+package util;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * A read-through cache holding a single value that expires after a time-to-live.
+ * The value is loaded on the first {@link #get()}.  Once it expires or is invalidated,
+ * the next <i>get()</i> starts reloading it in the background and returns the stale
+ * value meanwhile, so only the very first load runs on the caller's thread.
+ * Hits and misses are counted.
+ *
+ * @param <T> the type of value cached
+ * @author Jonathan Hawranko
+ */
+public class TtlCache<T> {
+    private final Supplier<T> loader;
+    private final Executor    refresher;
+    private final AtomicLong  hits   = new AtomicLong();
+    private final AtomicLong  misses = new AtomicLong();
+    private volatile long ttlMillis;
+    private T       value;
+    private long    loadedAt;
+    private boolean refreshing;
+
+    /**
+     * Constructor for a TtlCache.
+     *
+     * @param loader Loads the value; a null result is not cached
+     * @param ttlMillis How long a loaded value is kept, in milliseconds
+     * @param refresher Runs the reloads of an expired value
+     */
+    public TtlCache(Supplier<T> loader, long ttlMillis, Executor refresher) {
+        this.loader = loader;
+        this.ttlMillis = ttlMillis;
+        this.refresher = refresher;
+    }
+
+    /**
+     * Returns the cached value.  If there is none yet, it is loaded first; if it has expired,
+     * it is returned as is, and reloaded in the background.
+     *
+     * @return the value, or null if it could not be loaded
+     */
+    public synchronized T get() {
+        if (value == null) {
+            misses.incrementAndGet();
+            final T loaded = loader.get();
+            if (loaded != null) {
+                value = loaded;
+                loadedAt = System.currentTimeMillis();
+            }
+            return loaded;
+        }
+
+        if (System.currentTimeMillis() - loadedAt < ttlMillis)
+            hits.incrementAndGet();
+        else if (!refreshing) {
+            misses.incrementAndGet();
+            refreshing = true;
+            refresher.execute(this::refresh);
+        }
+        return value;
+    }
+
+    /**
+     * Marks the cached value as expired, so the next <i>get()</i> reloads it.
+     */
+    public synchronized void invalidate() {
+        loadedAt = 0;
+    }
+
+    /**
+     * Reloads the value, keeping the stale one if the load fails.
+     */
+    private void refresh() {
+        T loaded = null;
+        try {
+            loaded = loader.get();
+        }
+        finally {
+            synchronized (this) {
+                refreshing = false;
+                if (loaded != null) {
+                    value = loaded;
+                    loadedAt = System.currentTimeMillis();
+                }
+            }
+        }
+    }
+
+    /**
+     * Sets how long a loaded value is kept.  Applies to the value already cached.
+     *
+     * @param ttlMillis time-to-live, in milliseconds
+     */
+    public void setTtlMillis(long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * Returns how many times <i>get()</i> returned the cached value.
+     *
+     * @return the hit count
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Returns how many times <i>get()</i> had to load or reload the value.
+     *
+     * @return the miss count
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Returns the hit and miss counts.
+     *
+     * @return a summary of the cache's counters
+     */
+    @Override
+    public String toString() {
+        return String.format("%d hits, %d misses", getHits(), getMisses());
+    }
+}